@@ -0,0 +1,126 @@
+package pet.store.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import pet.store.controller.model.PetStoreCustomer;
+import pet.store.controller.model.PetStoreData;
+import pet.store.controller.model.PetStoreEmployee;
+import pet.store.entity.Customer;
+import pet.store.entity.Employee;
+import pet.store.entity.PetStore;
+
+/************************************************************************************************
+ * Measures the in-memory half of a store detail request: turning a PetStore entity graph into
+ * PetStoreData, building the customer and employee DTOs, and serializing the result with
+ * Jackson. No database is involved, so a change here shows up as pure mapping cost.
+ ************************************************************************************************/
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PetStoreDataMappingBenchmark {
+
+	@Param({ "10", "1000", "100000" })
+	private int associations;
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	private PetStore petStore;
+	private PetStoreData petStoreData;
+	private List<Customer> customers;
+	private List<Employee> employees;
+
+	@Setup
+	public void setUp() {
+		petStore = new PetStore();
+		petStore.setPetStoreId(1L);
+		petStore.setPetStoreName("Benchmark Pets");
+		petStore.setPetStoreAddress("1 Main St");
+		petStore.setPetStoreCity("Austin");
+		petStore.setPetStoreState("TX");
+		petStore.setPetStoreZip("78701");
+		petStore.setPetStorePhone("555-0100");
+
+		customers = new ArrayList<>(associations);
+		employees = new ArrayList<>(associations);
+
+		for (long id = 1; id <= associations; id++) {
+			Customer customer = new Customer();
+			customer.setCustomerId(id);
+			customer.setCustomerFirstName("First" + id);
+			customer.setCustomerLastName("Last" + id);
+			customer.setCustomerEmail("customer" + id + "@example.com");
+			customers.add(customer);
+			petStore.getCustomers().add(customer);
+
+			Employee employee = new Employee();
+			employee.setEmployeeId(id);
+			employee.setEmployeeFirstName("First" + id);
+			employee.setEmployeeLastName("Last" + id);
+			employee.setEmployeePhone("555-" + id);
+			employee.setEmployeeJobTitle("Clerk");
+			employee.setPetStore(petStore);
+			employees.add(employee);
+			petStore.getEmployees().add(employee);
+		}
+
+		petStoreData = new PetStoreData(petStore);
+	}
+
+	@Benchmark
+	public PetStoreData mapPetStoreData() {
+		return new PetStoreData(petStore);
+	}
+
+	@Benchmark
+	public List<PetStoreCustomer> mapCustomers() {
+		List<PetStoreCustomer> result = new ArrayList<>(customers.size());
+
+		for (Customer customer : customers) {
+			result.add(new PetStoreCustomer(customer));
+		}
+		return result;
+	}
+
+	@Benchmark
+	public List<PetStoreEmployee> mapEmployees() {
+		List<PetStoreEmployee> result = new ArrayList<>(employees.size());
+
+		for (Employee employee : employees) {
+			result.add(new PetStoreEmployee(employee));
+		}
+		return result;
+	}
+
+	@Benchmark
+	public byte[] serializePetStoreData() throws JsonProcessingException {
+		return objectMapper.writeValueAsBytes(petStoreData);
+	}
+
+	/*
+	 * associations is the number of customers and, separately, employees in the store. 
+	 * mapPetStoreData covers the whole constructor including the HashSet inserts; 
+	 * mapCustomers and mapEmployees isolate the per-row DTO construction; 
+	 * serializePetStoreData measures Jackson on an already mapped store.
+	 */
+}
@@ -0,0 +1,112 @@
+package pet.store.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+
+import pet.store.controller.model.PetStoreCustomer;
+import pet.store.controller.model.PetStoreData;
+import pet.store.controller.model.PetStoreEmployee;
+
+/************************************************************************************************
+ * Compares the response encodings a client can ask for on GET /pet_store/{id}: plain JSON
+ * (today's default), Smile, CBOR, and gzipped JSON and Smile. The score is the CPU time to
+ * encode one store. The encoded size of each is printed once per associations value during
+ * setup, since that is what goes over the wire.
+ ************************************************************************************************/
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PetStoreEncodingBenchmark {
+
+	@Param({ "10", "1000", "100000" })
+	private int associations;
+
+	private final ObjectMapper jsonMapper = new ObjectMapper();
+	private final ObjectMapper smileMapper = new SmileMapper();
+	private final ObjectMapper cborMapper = new CBORMapper();
+
+	private PetStoreData petStoreData;
+
+	@Setup
+	public void setUp() throws IOException {
+		petStoreData = new PetStoreData();
+		petStoreData.setPetStoreId(1L);
+		petStoreData.setPetStoreName("Benchmark Pets");
+		petStoreData.setPetStoreAddress("1 Main St");
+		petStoreData.setPetStoreCity("Austin");
+		petStoreData.setPetStoreState("TX");
+		petStoreData.setPetStoreZip("78701");
+		petStoreData.setPetStorePhone("555-0100");
+
+		for (long id = 1; id <= associations; id++) {
+			petStoreData.getCustomers().add(new PetStoreCustomer(id, "First" + id, "Last" + id,
+					"customer" + id + "@example.com"));
+			petStoreData.getEmployees().add(new PetStoreEmployee(id, "First" + id, "Last" + id, "555-" + id, "Clerk"));
+		}
+
+		System.out.printf("%nBytes for %d customers and employees: json=%d smile=%d cbor=%d json+gzip=%d smile+gzip=%d%n",
+				associations, json().length, smile().length, cbor().length, jsonGzip().length, smileGzip().length);
+	}
+
+	@Benchmark
+	public byte[] json() throws IOException {
+		return jsonMapper.writeValueAsBytes(petStoreData);
+	}
+
+	@Benchmark
+	public byte[] smile() throws IOException {
+		return smileMapper.writeValueAsBytes(petStoreData);
+	}
+
+	@Benchmark
+	public byte[] cbor() throws IOException {
+		return cborMapper.writeValueAsBytes(petStoreData);
+	}
+
+	@Benchmark
+	public byte[] jsonGzip() throws IOException {
+		return gzip(jsonMapper);
+	}
+
+	@Benchmark
+	public byte[] smileGzip() throws IOException {
+		return gzip(smileMapper);
+	}
+
+	private byte[] gzip(ObjectMapper mapper) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+		try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+			mapper.writeValue(gzip, petStoreData);
+		}
+		return bytes.toByteArray();
+	}
+
+	/*
+	 * associations is the number of customers and, separately, employees in the store. The 
+	 * gzip benchmarks use java.util.zip at its default level, which is what Tomcat's 
+	 * response compression uses.
+	 */
+}
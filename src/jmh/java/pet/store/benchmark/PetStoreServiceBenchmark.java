@@ -0,0 +1,111 @@
+package pet.store.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import pet.store.PetStoreApplication;
+import pet.store.controller.model.PetStoreCustomer;
+import pet.store.controller.model.PetStoreData;
+import pet.store.controller.model.PetStoreEmployee;
+import pet.store.controller.model.PetStoreListing;
+import pet.store.controller.model.PetStoreSummary;
+import pet.store.service.PetStoreService;
+
+/************************************************************************************************
+ * Measures PetStoreService read paths end to end (transaction, queries, mapping) against an
+ * in-memory H2 database running in MySQL mode. The detail cache is switched off so every call
+ * reaches the database.
+ ************************************************************************************************/
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PetStoreServiceBenchmark {
+
+	@Param({ "100", "10000" })
+	private int petStores;
+
+	@Param({ "10", "1000" })
+	private int associations;
+
+	private ConfigurableApplicationContext context;
+	private PetStoreService petStoreService;
+	private Long largePetStoreId;
+
+	@Setup
+	public void setUp() {
+		context = new SpringApplicationBuilder(PetStoreApplication.class).web(WebApplicationType.NONE).run(
+				"--spring.datasource.url=jdbc:h2:mem:benchmark;MODE=MySQL;DATABASE_TO_LOWER=TRUE",
+				"--spring.datasource.username=sa", "--spring.datasource.password=",
+				"--spring.jpa.hibernate.ddl-auto=create-drop", "--spring.cache.type=none",
+				"--spring.jpa.properties.hibernate.generate_statistics=false", "--logging.level.root=warn");
+
+		petStoreService = context.getBean(PetStoreService.class);
+
+		for (int i = 0; i < petStores; i++) {
+			PetStoreData petStoreData = new PetStoreData();
+			petStoreData.setPetStoreName("Store " + i);
+			petStoreData.setPetStoreState("TX");
+			largePetStoreId = petStoreService.savePetStore(petStoreData).getPetStoreId();
+		}
+
+		List<PetStoreCustomer> customers = new ArrayList<>(associations);
+		List<PetStoreEmployee> employees = new ArrayList<>(associations);
+
+		for (int i = 0; i < associations; i++) {
+			PetStoreCustomer customer = new PetStoreCustomer();
+			customer.setCustomerLastName("Last" + i);
+			customer.setCustomerEmail("customer" + i + "@example.com");
+			customers.add(customer);
+
+			PetStoreEmployee employee = new PetStoreEmployee();
+			employee.setEmployeeLastName("Last" + i);
+			employees.add(employee);
+		}
+
+		petStoreService.saveCustomers(largePetStoreId, customers);
+		petStoreService.saveEmployees(largePetStoreId, employees);
+	}
+
+	@TearDown
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public PetStoreListing<PetStoreSummary> retrieveAllPetStoresFirstPage() {
+		return petStoreService.retrieveAllPetStores(null, 50);
+	}
+
+	@Benchmark
+	public PetStoreData retrievePetStoreById() {
+		return petStoreService.retrievePetStoreById(largePetStoreId);
+	}
+
+	/*
+	 * petStores is the number of stores in the database and associations the number of 
+	 * customers and employees attached to the last one. retrieveAllPetStoresFirstPage 
+	 * should stay flat as petStores grows (keyset paging); retrievePetStoreById loads the 
+	 * store with all of its associations.
+	 */
+}
@@ -2,10 +2,12 @@ package pet.store;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.cache.annotation.EnableCaching;
 
 import pet.store.PetStoreApplication;
 
 @SpringBootApplication
+@EnableCaching
 public class PetStoreApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,101 @@
+package pet.store.config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import org.springframework.aot.AotDetector;
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import pet.store.service.CustomerSignUpQueue;
+
+/************************************************************************************************
+ * The aot Maven profile decides every @ConditionalOnProperty bean when the jar is built, with
+ * the prod profile active, so in the fast-startup jar these flags no longer do anything at
+ * runtime. Rather than let a flag set at deploy time be silently ignored, startup is refused
+ * when the runtime settings would have given a different set of beans than the one built in.
+ * application-prod.yaml sets the flags explicitly, so the built-in choice can be read there.
+ ************************************************************************************************/
+
+@Component
+public class BuildTimeConditionsCheck implements SmartInitializingSingleton {
+
+	private static final List<Flag> FLAGS = List.of(
+			new Flag("pet-store.datasource.replica.url", null, false, ReadReplicaConfig.class),
+			new Flag("spring.threads.virtual.enabled", "true", false, JdbcConcurrencyFilter.class),
+			new Flag("pet-store.customer-sign-up-queue.enabled", "true", false, CustomerSignUpQueue.class),
+			new Flag("pet-store.bulkheads.enabled", "true", true, EndpointBulkheadFilter.class));
+
+	private final Environment environment;
+	private final ListableBeanFactory beanFactory;
+
+	public BuildTimeConditionsCheck(Environment environment, ListableBeanFactory beanFactory) {
+		this.environment = environment;
+		this.beanFactory = beanFactory;
+	}
+
+	@Override
+	public void afterSingletonsInstantiated() {
+		if (!AotDetector.useGeneratedArtifacts()) {
+			return;
+		}
+
+		List<String> mismatches = mismatches(environment, beanFactory);
+
+		if (!mismatches.isEmpty()) {
+			throw new IllegalStateException("This build was processed ahead of time with other settings: "
+					+ String.join("; ", mismatches)
+					+ ". Change application-prod.yaml and rebuild with mvn -P aot package.");
+		}
+	}
+
+	/*
+	 * afterSingletonsInstantiated: Only checks when the application runs from the classes
+	 * generated ahead of time (spring.aot.enabled=true). Otherwise the conditions are
+	 * evaluated at startup as usual and cannot disagree with the runtime settings.
+	 */
+
+	static List<String> mismatches(Environment environment, ListableBeanFactory beanFactory) {
+		List<String> mismatches = new ArrayList<>();
+
+		for (Flag flag : FLAGS) {
+			boolean enabledNow = flag.matches(environment.getProperty(flag.property()));
+			boolean builtIn = beanFactory.getBeanNamesForType(flag.beanType(), true, false).length > 0;
+
+			if (enabledNow != builtIn) {
+				mismatches.add(flag.property() + " turns " + flag.beanType().getSimpleName()
+						+ (enabledNow ? " on" : " off") + " but the build has it " + (builtIn ? "on" : "off"));
+			}
+		}
+		return mismatches;
+	}
+
+	/*
+	 * mismatches: For each flag, compares what its @ConditionalOnProperty would decide now
+	 * with whether the bean it guards is in the context. Bean definitions are looked up
+	 * without creating anything, as most beans are lazy in the prod profile.
+	 */
+
+	private record Flag(String property, String havingValue, boolean matchIfMissing, Class<?> beanType) {
+
+		private boolean matches(String value) {
+			if (Objects.isNull(value)) {
+				return matchIfMissing;
+			}
+
+			if (Objects.isNull(havingValue)) {
+				return !"false".equalsIgnoreCase(value);
+			}
+			return havingValue.equalsIgnoreCase(value);
+		}
+	}
+
+	/*
+	 * Flag: One @ConditionalOnProperty and the bean it guards. matches follows the annotation's
+	 * rules: a missing property gives matchIfMissing; without havingValue any value but
+	 * "false" matches; otherwise the value must equal havingValue, ignoring case.
+	 */
+}
@@ -0,0 +1,206 @@
+package pet.store.config;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/************************************************************************************************
+ * Bulkheads for the pet store endpoints. Requests are split into four classes -- list, detail,
+ * write and export -- and each class may only run so many requests at once, with a short queue
+ * behind them. A burst of store listings can then use up the list bulkhead but not the Tomcat
+ * threads and pooled connections that employee and customer writes need.
+ *
+ * A request that finds its bulkhead and queue full, or waits in the queue longer than
+ * max-wait, is answered at once with 503 and Retry-After. Limits are set per class under
+ * pet-store.bulkheads (max-concurrent, max-queued, max-wait). The change feed is not limited:
+ * its connections hold neither a thread nor a database connection while open.
+ ************************************************************************************************/
+
+@Component
+@ConditionalOnProperty(name = "pet-store.bulkheads.enabled", havingValue = "true", matchIfMissing = true)
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+@Slf4j
+public class EndpointBulkheadFilter extends OncePerRequestFilter {
+
+	private final Map<String, Bulkhead> bulkheads;
+
+	public EndpointBulkheadFilter(Environment environment, MeterRegistry meterRegistry) {
+		Binder binder = Binder.get(environment);
+
+		bulkheads = Map.of(
+				"list", bulkhead(binder, meterRegistry, "list", new Limits(4, 8, Duration.ofMillis(250))),
+				"detail", bulkhead(binder, meterRegistry, "detail", new Limits(8, 16, Duration.ofMillis(250))),
+				"write", bulkhead(binder, meterRegistry, "write", new Limits(4, 16, Duration.ofMillis(500))),
+				"export", bulkhead(binder, meterRegistry, "export", new Limits(2, 2, Duration.ofMillis(250))));
+	}
+
+	private static Bulkhead bulkhead(Binder binder, MeterRegistry meterRegistry, String name, Limits defaults) {
+		Limits limits = binder.bind("pet-store.bulkheads." + name, Bindable.ofInstance(defaults)).orElse(defaults);
+		return new Bulkhead(name, limits, meterRegistry);
+	}
+
+	/*
+	 * bulkhead: Reads the limits from pet-store.bulkheads.<name>. Any setting left out keeps 
+	 * the default given in the constructor.
+	 */
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+			throws ServletException, IOException {
+
+		String endpointClass = classify(request);
+
+		if (Objects.isNull(endpointClass)) {
+			filterChain.doFilter(request, response);
+			return;
+		}
+
+		Bulkhead bulkhead = bulkheads.get(endpointClass);
+
+		if (!bulkhead.acquire()) {
+			response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+			response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(),
+					"Too many " + bulkhead.name + " requests in progress");
+			return;
+		}
+
+		try {
+			filterChain.doFilter(request, response);
+		} finally {
+			ReleasingAsyncListener.releaseWhenDone(request, bulkhead.permits::release);
+		}
+	}
+
+	/*
+	 * doFilterInternal: Holds a permit of the request's bulkhead while it runs. Exports
+	 * stream their rows after the initial dispatch returns, so for an async request the permit
+	 * is released when the async request completes, fails or times out.
+	 */
+
+	private String classify(HttpServletRequest request) {
+		String path = request.getRequestURI().substring(request.getContextPath().length());
+
+		if (!path.startsWith("/pet_store") || path.equals("/pet_store/changes")) {
+			return null;
+		}
+
+		if (!HttpMethod.GET.matches(request.getMethod()) && !HttpMethod.HEAD.matches(request.getMethod())) {
+			return "write";
+		}
+
+		if (path.endsWith("/export")) {
+			return "export";
+		}
+
+		if (path.equals("/pet_store") || path.equals("/pet_store/stats") || path.endsWith("/search")) {
+			return "list";
+		}
+		return "detail";
+	}
+
+	/*
+	 * classify: POST, PUT and DELETE are writes. Of the reads, the NDJSON exports are exports;
+	 * the store listing, the fleet statistics and the customer search, which all read many
+	 * rows, are lists; everything else about a single store is a detail.
+	 */
+
+	@Data
+	@NoArgsConstructor
+	@AllArgsConstructor
+	public static class Limits {
+		private int maxConcurrent;
+		private int maxQueued;
+		private Duration maxWait;
+	}
+
+	private static final class Bulkhead {
+		private final String name;
+		private final Semaphore permits;
+		private final AtomicInteger queued = new AtomicInteger();
+		private final int maxQueued;
+		private final long maxWaitMillis;
+		private final Counter queueFullRejections;
+		private final Counter timeoutRejections;
+
+		private Bulkhead(String name, Limits limits, MeterRegistry meterRegistry) {
+			this.name = name;
+			this.permits = new Semaphore(limits.getMaxConcurrent(), true);
+			this.maxQueued = limits.getMaxQueued();
+			this.maxWaitMillis = limits.getMaxWait().toMillis();
+
+			Gauge.builder("pet_store.bulkhead.active", permits, p -> limits.getMaxConcurrent() - p.availablePermits())
+					.description("Requests running in the bulkhead").tag("bulkhead", name).register(meterRegistry);
+			Gauge.builder("pet_store.bulkhead.queued", queued, AtomicInteger::get)
+					.description("Requests waiting for the bulkhead").tag("bulkhead", name).register(meterRegistry);
+			queueFullRejections = Counter.builder("pet_store.bulkhead.rejected")
+					.description("Requests shed with 503").tags("bulkhead", name, "reason", "queue_full")
+					.register(meterRegistry);
+			timeoutRejections = Counter.builder("pet_store.bulkhead.rejected")
+					.description("Requests shed with 503").tags("bulkhead", name, "reason", "timeout")
+					.register(meterRegistry);
+
+			log.info("Bulkhead {}: {} concurrent, {} queued, {} max wait", name, limits.getMaxConcurrent(), maxQueued,
+					limits.getMaxWait());
+		}
+
+		private boolean acquire() {
+			if (permits.tryAcquire()) {
+				return true;
+			}
+
+			if (queued.incrementAndGet() > maxQueued) {
+				queued.decrementAndGet();
+				queueFullRejections.increment();
+				return false;
+			}
+
+			try {
+				if (permits.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS)) {
+					return true;
+				}
+			} catch (InterruptedException exception) {
+				Thread.currentThread().interrupt();
+			} finally {
+				queued.decrementAndGet();
+			}
+
+			timeoutRejections.increment();
+			return false;
+		}
+	}
+
+	/*
+	 * Bulkhead: A semaphore with a bounded number of waiters. A request that cannot get a
+	 * permit right away joins the queue if there is room and waits up to max-wait. The
+	 * active and queued gauges and the rejected counter (tagged with the reason) are there
+	 * for tuning the limits.
+	 */
+}
@@ -0,0 +1,102 @@
+package pet.store.config;
+
+import java.io.IOException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+
+/************************************************************************************************
+ * With virtual threads every request gets its own cheap thread, so the Tomcat worker pool no
+ * longer limits how many requests reach the database at once. This filter puts that limit
+ * back: a request must hold one of a fixed number of permits, one per pooled connection, while
+ * it runs. Waiting requests park their virtual thread here instead of queueing inside Hikari.
+ * Only the pet store endpoints are limited; the change feed and the actuator endpoints are not
+ * (see shouldNotFilter).
+ ************************************************************************************************/
+
+@Component
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+@Slf4j
+public class JdbcConcurrencyFilter extends OncePerRequestFilter {
+
+	private final Semaphore permits;
+	private final long permitWaitMillis;
+
+	public JdbcConcurrencyFilter(@Value("${spring.datasource.hikari.maximum-pool-size:10}") int maximumPoolSize,
+			@Value("${pet-store.virtual-threads.permit-wait-millis:5000}") long permitWaitMillis) {
+		this.permits = new Semaphore(maximumPoolSize, true);
+		this.permitWaitMillis = permitWaitMillis;
+
+		log.info("Virtual-thread mode: limiting concurrent requests to {} (connection pool size)", maximumPoolSize);
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+			throws ServletException, IOException {
+
+		boolean acquired;
+
+		try {
+			acquired = permits.tryAcquire(permitWaitMillis, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException exception) {
+			Thread.currentThread().interrupt();
+			acquired = false;
+		}
+
+		if (!acquired) {
+			response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+			response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), "Database concurrency limit reached");
+			return;
+		}
+
+		try {
+			filterChain.doFilter(request, response);
+		} finally {
+			ReleasingAsyncListener.releaseWhenDone(request, permits::release);
+		}
+	}
+
+	/*
+	 * doFilterInternal: Waits up to permit-wait-millis for a permit, then runs the request. If 
+	 * no permit frees up in time the request is answered with 503 and Retry-After instead of 
+	 * waiting on a connection. A streaming export holds its connection until the last row is 
+	 * written, so its permit is only released when the async request ends.
+	 */
+
+	@Override
+	protected boolean shouldNotFilter(HttpServletRequest request) {
+		String path = request.getRequestURI().substring(request.getContextPath().length());
+
+		return !path.startsWith("/pet_store") || path.equals("/pet_store/changes");
+	}
+
+	/*
+	 * shouldNotFilter: A change feed connection stays open for up to 30 minutes but never 
+	 * touches the database, so it must not hold a permit all that time; a few subscribers 
+	 * would otherwise take every permit and turn all other requests away. The actuator 
+	 * endpoints are left out as well. Only the health check uses a connection, briefly, and 
+	 * it must answer even while the pet store endpoints are saturated.
+	 */
+
+	@Override
+	protected boolean shouldNotFilterAsyncDispatch() {
+		return true;
+	}
+
+	/*
+	 * shouldNotFilterAsyncDispatch: Streaming exports finish on an async dispatch. That 
+	 * dispatch must not take a second permit; the one from the initial dispatch is still held.
+	 */
+}
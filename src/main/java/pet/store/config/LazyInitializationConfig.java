@@ -0,0 +1,35 @@
+package pet.store.config;
+
+import org.flywaydb.core.Flyway;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationInitializer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.orm.jpa.AbstractEntityManagerFactoryBean;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/************************************************************************************************
+ * The prod profile turns on lazy bean initialization. Most beans can wait for the first request
+ * that needs them, but not all: the migrations must have run before the instance reports ready,
+ * building the EntityManagerFactory is slow enough that the first request should not pay for
+ * it, and BuildTimeConditionsCheck must refuse a mismatched build before the instance takes
+ * traffic. Beans that implement SmartLifecycle (the change feed, the sign-up queue) and the
+ * servlet filters are started eagerly by Spring anyway.
+ ************************************************************************************************/
+
+@Configuration
+public class LazyInitializationConfig {
+
+	@Bean
+	public static LazyInitializationExcludeFilter eagerStartupBeans() {
+		return LazyInitializationExcludeFilter.forBeanTypes(Flyway.class, FlywayMigrationInitializer.class,
+				EntityManagerFactory.class, AbstractEntityManagerFactoryBean.class, BuildTimeConditionsCheck.class);
+	}
+
+	/*
+	 * eagerStartupBeans: Keeps Flyway, the EntityManagerFactory and the build-time 
+	 * conditions check out of lazy initialization. It has no effect unless 
+	 * spring.main.lazy-initialization is true.
+	 */
+}
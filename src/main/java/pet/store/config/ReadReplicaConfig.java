@@ -0,0 +1,96 @@
+package pet.store.config;
+
+import java.time.Duration;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/************************************************************************************************
+ * Read/write splitting. When pet-store.datasource.replica.url is set, the application gets two
+ * connection pools: the primary from spring.datasource and a replica from
+ * pet-store.datasource.replica. Transactions marked @Transactional(readOnly = true) run on the
+ * replica and everything else runs on the primary. Without a replica URL this class is skipped
+ * and Spring Boot configures the single data source as usual.
+ * 
+ * Hibernate keeps a session's connection until the session closes. With open-in-view the
+ * session lasts the whole request, so the first read-only lookup would pin a replica connection
+ * that a later write in the same request reuses. The replica is therefore refused at startup
+ * unless spring.jpa.open-in-view is false.
+ ************************************************************************************************/
+
+@Configuration
+@ConditionalOnProperty(name = "pet-store.datasource.replica.url")
+public class ReadReplicaConfig {
+
+	@Bean
+	@ConfigurationProperties("spring.datasource.hikari")
+	public HikariDataSource primaryDataSource(DataSourceProperties dataSourceProperties) {
+		HikariDataSource dataSource = dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class)
+				.build();
+		dataSource.setPoolName("primary");
+		return dataSource;
+	}
+
+	@Bean
+	@ConfigurationProperties("pet-store.datasource.replica.hikari")
+	public HikariDataSource replicaDataSource(Environment environment) {
+		DataSourceProperties replicaDataSourceProperties = Binder.get(environment)
+				.bind("pet-store.datasource.replica", DataSourceProperties.class).get();
+
+		HikariDataSource dataSource = replicaDataSourceProperties.initializeDataSourceBuilder()
+				.type(HikariDataSource.class).build();
+		dataSource.setPoolName("replica");
+		dataSource.setReadOnly(true);
+		dataSource.setConnectionTimeout(2000);
+		dataSource.setInitializationFailTimeout(-1);
+		return dataSource;
+	}
+
+	/*
+	 * replicaDataSource: The replica url, username and password are read the same way as 
+	 * spring.datasource. They are bound here rather than exposed as a second 
+	 * DataSourceProperties bean, which would clash with Spring Boot's own. The replica pool 
+	 * is read-only, gives up on a connection after 2 seconds and does not fail startup when 
+	 * the replica is down. All of these can be overridden under 
+	 * pet-store.datasource.replica.hikari.
+	 */
+
+	@Bean
+	@Primary
+	public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+			@Qualifier("replicaDataSource") DataSource replicaDataSource,
+			@Value("${pet-store.datasource.replica.fallback-to-primary:true}") boolean fallbackToPrimary,
+			@Value("${pet-store.datasource.replica.retry-interval:10s}") Duration retryInterval,
+			@Value("${spring.jpa.open-in-view:true}") boolean openInView) {
+
+		if (openInView) {
+			throw new IllegalStateException(
+					"pet-store.datasource.replica.url requires spring.jpa.open-in-view=false");
+		}
+
+		LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primaryDataSource);
+		dataSource.setReadOnlyDataSource(
+				new ReplicaFallbackDataSource(replicaDataSource, primaryDataSource, fallbackToPrimary, retryInterval));
+		return dataSource;
+	}
+
+	/*
+	 * dataSource: The data source JPA and JdbcTemplate use. LazyConnectionDataSourceProxy 
+	 * waits until the first statement to fetch a real connection; by then the transaction 
+	 * manager has marked the connection read-only or not, and read-only connections come 
+	 * from the replica (or the primary as a fallback).
+	 */
+}
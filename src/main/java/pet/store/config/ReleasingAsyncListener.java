@@ -0,0 +1,64 @@
+package pet.store.config;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.http.HttpServletRequest;
+
+/************************************************************************************************
+ * Releases a permit that a filter took for a request once the request is really finished. For
+ * an ordinary request that is when the filter chain returns; for an async request (the NDJSON
+ * exports) it is when the async request completes, fails or times out, since the response is
+ * still being written -- and a connection still held -- after the initial dispatch returns.
+ ************************************************************************************************/
+
+final class ReleasingAsyncListener implements AsyncListener {
+
+	private final Runnable release;
+
+	private ReleasingAsyncListener(Runnable release) {
+		this.release = release;
+	}
+
+	static void releaseWhenDone(HttpServletRequest request, Runnable release) {
+		AtomicBoolean released = new AtomicBoolean();
+		Runnable releaseOnce = () -> {
+			if (released.compareAndSet(false, true)) {
+				release.run();
+			}
+		};
+
+		if (request.isAsyncStarted()) {
+			request.getAsyncContext().addListener(new ReleasingAsyncListener(releaseOnce));
+		} else {
+			releaseOnce.run();
+		}
+	}
+
+	/*
+	 * releaseWhenDone: Called by a filter once the chain has returned. Runs release now, or 
+	 * registers a listener that runs it when the async request ends. Either way it runs only 
+	 * once.
+	 */
+
+	@Override
+	public void onComplete(AsyncEvent event) {
+		release.run();
+	}
+
+	@Override
+	public void onTimeout(AsyncEvent event) {
+		release.run();
+	}
+
+	@Override
+	public void onError(AsyncEvent event) {
+		release.run();
+	}
+
+	@Override
+	public void onStartAsync(AsyncEvent event) {
+		event.getAsyncContext().addListener(this);
+	}
+}
@@ -0,0 +1,68 @@
+package pet.store.config;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import lombok.extern.slf4j.Slf4j;
+
+/************************************************************************************************
+ * The data source used for read-only transactions. It hands out replica connections and, when
+ * the replica cannot be reached and fallback is enabled, primary connections instead. After a
+ * failure the replica is skipped for retryInterval so every read does not wait out a
+ * connection timeout first.
+ ************************************************************************************************/
+
+@Slf4j
+public class ReplicaFallbackDataSource extends AbstractDataSource {
+
+	private final DataSource replica;
+	private final DataSource primary;
+	private final boolean fallbackToPrimary;
+	private final long retryIntervalMillis;
+
+	private volatile long replicaRetryAt;
+
+	public ReplicaFallbackDataSource(DataSource replica, DataSource primary, boolean fallbackToPrimary,
+			Duration retryInterval) {
+		this.replica = replica;
+		this.primary = primary;
+		this.fallbackToPrimary = fallbackToPrimary;
+		this.retryIntervalMillis = retryInterval.toMillis();
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		if (fallbackToPrimary && System.currentTimeMillis() < replicaRetryAt) {
+			return primary.getConnection();
+		}
+
+		try {
+			return replica.getConnection();
+		} catch (SQLException exception) {
+			if (!fallbackToPrimary) {
+				throw exception;
+			}
+
+			log.warn("Read replica unavailable, using the primary for {} ms: {}", retryIntervalMillis,
+					exception.getMessage());
+			replicaRetryAt = System.currentTimeMillis() + retryIntervalMillis;
+
+			return primary.getConnection();
+		}
+	}
+
+	/*
+	 * getConnection: Returns a replica connection, or a primary connection while the replica 
+	 * is marked as down. Without fallback a replica failure is passed on to the caller.
+	 */
+
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException {
+		throw new UnsupportedOperationException("Credentials come from the pool configuration");
+	}
+}
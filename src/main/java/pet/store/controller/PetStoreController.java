@@ -2,23 +2,44 @@ package pet.store.controller;
 
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import lombok.extern.slf4j.Slf4j;
+import pet.store.controller.model.BulkImportResult;
+import pet.store.controller.model.CustomerSignUpStatus;
 import pet.store.controller.model.PetStoreCustomer;
 import pet.store.controller.model.PetStoreData;
+import pet.store.controller.model.PetStoreDeletion;
 import pet.store.controller.model.PetStoreEmployee;
+import pet.store.controller.model.PetStoreFleetStats;
+import pet.store.controller.model.PetStoreListing;
+import pet.store.controller.model.PetStoreStats;
+import pet.store.controller.model.PetStoreSummary;
+import pet.store.service.CustomerSignUpQueue;
+import pet.store.service.CustomerUpsertIdempotencyCache;
+import pet.store.service.PetStoreChangeFeed;
+import pet.store.service.PetStoreDetailCache;
 import pet.store.service.PetStoreService;
 
 /************************************************************************************
@@ -38,10 +59,25 @@ public class PetStoreController {
 	@Autowired
 	private PetStoreService petStoreService;
 
+	@Autowired(required = false)
+	private CustomerSignUpQueue customerSignUpQueue;
+
+	@Autowired
+	private PetStoreChangeFeed petStoreChangeFeed;
+
+	@Autowired
+	private CustomerUpsertIdempotencyCache customerUpsertIdempotencyCache;
+
+	@Autowired
+	private PetStoreDetailCache petStoreDetailCache;
+
 	/*
 	 * @Autowired -- This injects an instance of PetStoreService into this
 	 * controller. It's like having a phone number of the service layer so this
 	 * controller can call it whenever it needs.
+	 * 
+	 * customerSignUpQueue is only present when pet-store.customer-sign-up-queue.enabled is 
+	 * true, so it is injected with required = false.
 	 */
 
 	@PostMapping
@@ -61,10 +97,11 @@ public class PetStoreController {
 	 */
 
 	@PutMapping("/{petStoreId}")
-	public PetStoreData updatePetStoreData(@PathVariable Long petStoreId, @RequestBody PetStoreData petStoreData) {
+	public PetStoreData updatePetStoreData(@PathVariable Long petStoreId, @RequestBody PetStoreData petStoreData,
+			@RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
 		log.info("Updating pet store data for ID= {}: {}", petStoreId, petStoreData);
 		petStoreData.setPetStoreId(petStoreId);
-		return petStoreService.savePetStore(petStoreData);
+		return petStoreService.savePetStore(petStoreData, versionFromETag(ifMatch));
 	}
 
 	/*
@@ -74,6 +111,9 @@ public class PetStoreController {
 	 * pet store. It logs that it received the request, then it updates the pet
 	 * store data with the given ID using the petStoreService, and finally returns
 	 * the updated data.
+	 * 
+	 * If the client sends an If-Match header with the ETag it last read, the update 
+	 * is rejected with 412 (PRECONDITION_FAILED) when the store has changed since then.
 	 */
 
 	@PostMapping("/{petStoreId}/employee")
@@ -87,32 +127,270 @@ public class PetStoreController {
 	}
 
 	@PostMapping("/{petStoreId}/customer")
-	@ResponseStatus(HttpStatus.CREATED)
-	public PetStoreCustomer addCustomerToStore(@PathVariable Long petStoreId,
+	public ResponseEntity<Object> addCustomerToStore(@PathVariable Long petStoreId,
 			@RequestBody PetStoreCustomer petStoreCustomer) {
 
 		log.info("Adding customer to pet store with ID={}: {}", petStoreId, petStoreCustomer);
 
-		return petStoreService.saveCustomer(petStoreId, petStoreCustomer);
+		if (Objects.nonNull(customerSignUpQueue) && Objects.isNull(petStoreCustomer.getCustomerId())) {
+			return ResponseEntity.status(HttpStatus.ACCEPTED)
+					.body(customerSignUpQueue.enqueue(petStoreId, petStoreCustomer));
+		}
+
+		return ResponseEntity.status(HttpStatus.CREATED)
+				.body(petStoreService.saveCustomer(petStoreId, petStoreCustomer));
+	}
+
+	/*
+	 * addCustomerToStore: Creates or updates a customer and answers 201 (CREATED) with the 
+	 * saved customer. When the sign-up queue is enabled, a new customer (no customerId) is 
+	 * queued instead and the answer is 202 (ACCEPTED) with a CustomerSignUpStatus whose 
+	 * trackingId can be polled below. Updates are always written right away.
+	 */
+
+	@PutMapping("/{petStoreId}/customer")
+	public PetStoreCustomer upsertCustomerOfStore(@PathVariable Long petStoreId,
+			@RequestHeader(name = "Idempotency-Key", required = false) String idempotencyKey,
+			@RequestBody PetStoreCustomer petStoreCustomer) {
+
+		log.info("Adding or updating customer by email in pet store with ID={}: {}", petStoreId, petStoreCustomer);
+
+		return customerUpsertIdempotencyCache.execute(petStoreId, idempotencyKey, petStoreCustomer,
+				() -> petStoreService.upsertCustomerByEmail(petStoreId, petStoreCustomer));
 	}
 
+	/*
+	 * upsertCustomerOfStore: PUT /pet_store/{petStoreId}/customer adds the customer to the 
+	 * store, or updates the customer with the same email, and answers with the saved 
+	 * customer. Sending it twice has the same effect as sending it once. With an 
+	 * Idempotency-Key header, a retry is answered from memory without touching the database.
+	 */
+
+	@GetMapping("/{petStoreId}/customer/sign_up/{trackingId}")
+	public CustomerSignUpStatus retrieveCustomerSignUpStatus(@PathVariable Long petStoreId,
+			@PathVariable String trackingId) {
+
+		if (Objects.isNull(customerSignUpQueue)) {
+			throw new NoSuchElementException("Customer sign-up queue is not enabled");
+		}
+
+		return customerSignUpQueue.retrieveStatus(petStoreId, trackingId);
+	}
+
+	/*
+	 * retrieveCustomerSignUpStatus: Returns the status of a queued sign-up: QUEUED until its 
+	 * batch is written, then CREATED (with the customerId), REJECTED or FAILED.
+	 */
+
+	@PostMapping("/{petStoreId}/employees")
+	public List<BulkImportResult> addEmployeesToStore(@PathVariable Long petStoreId,
+			@RequestBody List<PetStoreEmployee> petStoreEmployees) {
+
+		log.info("Importing {} employees into pet store with ID={}", petStoreEmployees.size(), petStoreId);
+
+		return petStoreService.saveEmployees(petStoreId, petStoreEmployees);
+	}
+
+	@PostMapping("/{petStoreId}/customers")
+	public List<BulkImportResult> addCustomersToStore(@PathVariable Long petStoreId,
+			@RequestBody List<PetStoreCustomer> petStoreCustomers) {
+
+		log.info("Importing {} customers into pet store with ID={}", petStoreCustomers.size(), petStoreId);
+
+		return petStoreService.saveCustomers(petStoreId, petStoreCustomers);
+	}
+
+	/*
+	 * addEmployeesToStore / addCustomersToStore: These bulk endpoints take a JSON array of 
+	 * new employees or customers and return one BulkImportResult per row, in request order. 
+	 * Only the row count is logged, since the bodies can be very large.
+	 */
+
+	@GetMapping("/{petStoreId}/customers/search")
+	public List<PetStoreCustomer> searchCustomers(@PathVariable Long petStoreId,
+			@RequestParam(required = false) String email, @RequestParam(required = false) String lastName,
+			@RequestParam(defaultValue = "20") int limit) {
+		return petStoreService.searchCustomers(petStoreId, email, lastName, limit);
+	}
+
+	/*
+	 * searchCustomers: This method is called when a client sends a GET request to 
+	 * /pet_store/{petStoreId}/customers/search with either an email or a lastName prefix. 
+	 * It returns the matching customers of that store, at most "limit" of them.
+	 */
+
+	@GetMapping(value = "/{petStoreId}/customers/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+	public ResponseEntity<StreamingResponseBody> exportCustomers(@PathVariable Long petStoreId) {
+		log.info("Exporting customers of pet store with ID={}", petStoreId);
+
+		petStoreService.requirePetStoreExists(petStoreId);
+
+		return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON)
+				.body(outputStream -> petStoreService.exportCustomers(petStoreId, outputStream));
+	}
+
+	@GetMapping(value = "/{petStoreId}/employees/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+	public ResponseEntity<StreamingResponseBody> exportEmployees(@PathVariable Long petStoreId) {
+		log.info("Exporting employees of pet store with ID={}", petStoreId);
+
+		petStoreService.requirePetStoreExists(petStoreId);
+
+		return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON)
+				.body(outputStream -> petStoreService.exportEmployees(petStoreId, outputStream));
+	}
+
+	/*
+	 * exportCustomers / exportEmployees: These endpoints stream every customer or employee of 
+	 * a store as NDJSON. The store is checked first so a bad ID still gets a 404. The rows are 
+	 * then written by StreamingResponseBody on an async thread while the request thread is 
+	 * released.
+	 */
+
 	@GetMapping
-	public List<PetStoreData> retrieveAllPetStores() {
-		return petStoreService.retrieveAllPetStores();
+	public PetStoreListing<?> retrieveAllPetStores(@RequestParam(required = false) Long after,
+			@RequestParam(defaultValue = "50") int limit, @RequestParam(required = false) List<String> fields,
+			@RequestParam(required = false) List<String> include, @RequestParam(required = false) List<Long> ids) {
+
+		if (Objects.nonNull(include)) {
+			throw new IllegalArgumentException("include is only supported on GET /pet_store/{petStoreId}");
+		}
+
+		if (Objects.nonNull(ids)) {
+			if (Objects.nonNull(after) || Objects.nonNull(fields)) {
+				throw new IllegalArgumentException("ids cannot be combined with after or fields");
+			}
+			return petStoreService.retrievePetStoresByIds(ids);
+		}
+
+		if (Objects.isNull(fields)) {
+			return petStoreService.retrieveAllPetStores(after, limit);
+		}
+		return petStoreService.retrieveAllPetStores(after, limit, fields);
+	}
+
+	/*
+	 * retrieveAllPetStores: This method is called when a client sends a GET request to 
+	 * /pet_store. It returns one page of pet store summaries (no customers or employees). 
+	 * The optional "after" parameter is the nextCursor from the previous page and "limit" 
+	 * is the page size. The optional "fields" parameter (for example 
+	 * fields=petStoreName,petStoreCity) limits the columns that are read and returned.
+	 * 
+	 * With "ids" (for example ids=4,8,15) it instead returns those stores in full, in the 
+	 * order asked for, with a NOT_FOUND entry for any ID that does not exist. This replaces 
+	 * one GET /pet_store/{petStoreId} call per store.
+	 */
+
+	@GetMapping("/search")
+	public List<PetStoreSummary> searchPetStores(@RequestParam(required = false) String state,
+			@RequestParam(required = false) String city, @RequestParam(required = false) String zip,
+			@RequestParam(defaultValue = "50") int limit) {
+		return petStoreService.searchPetStores(state, city, zip, limit);
+	}
+
+	/*
+	 * searchPetStores: GET /pet_store/search finds stores by location, either by state 
+	 * (optionally narrowed to a city) or by zip, and returns their summaries, at most "limit" 
+	 * of them. A state search returns the stores ordered by city.
+	 */
+
+	@GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	public SseEmitter streamChanges(@RequestHeader(name = "Last-Event-ID", required = false) Long lastEventId,
+			@RequestParam(required = false) Long after) {
+		return petStoreChangeFeed.subscribe(Objects.nonNull(lastEventId) ? lastEventId : after);
+	}
+
+	/*
+	 * streamChanges: GET /pet_store/changes is a server-sent event stream with one event per 
+	 * committed change (see PetStoreChangeEvent), so integrations do not have to keep polling 
+	 * the store listing. Browsers resume with the Last-Event-ID header automatically; other 
+	 * clients can pass the last sequence they saw as "after".
+	 */
+
+	@GetMapping("/stats")
+	public PetStoreFleetStats retrieveFleetStats() {
+		return petStoreService.retrieveFleetStats();
 	}
 
+	@GetMapping("/{petStoreId}/stats")
+	public PetStoreStats retrievePetStoreStats(@PathVariable Long petStoreId) {
+		return petStoreService.retrievePetStoreStats(petStoreId);
+	}
+
+	/*
+	 * retrieveFleetStats / retrievePetStoreStats: GET /pet_store/stats returns totals over 
+	 * all stores and GET /pet_store/{petStoreId}/stats the employee and customer counts of 
+	 * one store. Both read counters kept on the pet_store rows instead of loading or counting 
+	 * employees and customers. (Spring prefers the literal /stats path over /{petStoreId}.)
+	 */
+
 	@GetMapping("/{petStoreId}")
-	public PetStoreData retrievePetStoreById(@PathVariable Long petStoreId) {
-		return petStoreService.retrievePetStoreById(petStoreId);
+	public ResponseEntity<Object> retrievePetStoreById(@PathVariable Long petStoreId, WebRequest webRequest,
+			@RequestParam(required = false) List<String> fields, @RequestParam(required = false) List<String> include) {
+		Long version = petStoreService.retrievePetStoreVersion(petStoreId);
+
+		if (webRequest.checkNotModified(eTag(version))) {
+			return null;
+		}
+
+		if (Objects.isNull(fields) && Objects.isNull(include)) {
+			petStoreDetailCache.evictIfStale(petStoreId, version);
+			PetStoreData petStoreData = petStoreService.retrievePetStoreById(petStoreId);
+
+			return ResponseEntity.ok().eTag(eTag(petStoreData.getVersion())).body(petStoreData);
+		}
+		return ResponseEntity.ok()
+				.body(petStoreService.retrievePetStoreById(petStoreId, fields, Objects.isNull(include) ? List.of() : include));
 	}
 
+	/*
+	 * retrievePetStoreById: The store's version is used as its ETag. If the client's 
+	 * If-None-Match header still matches, checkNotModified answers 304 (NOT_MODIFIED) and 
+	 * the store, its employees and its customers are never loaded. The ETag is weak because 
+	 * the same version is sent as JSON, Smile or CBOR and possibly gzipped.
+	 * 
+	 * The full PetStoreData may come from the detail cache, so its ETag is the version it 
+	 * was read at, not the one just queried; a body and its ETag therefore always belong 
+	 * together. A cached entry older than the database is dropped and read again first.
+	 * 
+	 * Without parameters the whole PetStoreData is returned. With "fields" and/or "include" 
+	 * (for example fields=petStoreName,petStoreCity&include=employees) only those columns and 
+	 * associations are read and returned; leaving out include means no customers or 
+	 * employees.
+	 */
+
+	private Long versionFromETag(String eTag) {
+		if (Objects.isNull(eTag) || eTag.isBlank() || eTag.trim().equals("*")) {
+			return null;
+		}
+
+		String value = eTag.trim().replaceFirst("^W/", "").replace("\"", "");
+
+		try {
+			return Long.valueOf(value);
+		} catch (NumberFormatException exception) {
+			throw new IllegalArgumentException("Invalid If-Match header: " + eTag);
+		}
+	}
+
+	private String eTag(Long version) {
+		return "W/\"" + version + "\"";
+	}
+
+	/*
+	 * versionFromETag / eTag: versionFromETag turns an If-Match value such as "3" or W/"3" 
+	 * back into a version; a missing header or * means the update is not conditional. eTag 
+	 * formats a version as the weak ETag of the store detail.
+	 */
+
 	@DeleteMapping("/{petStoreId}")
-	public Map<String, String> deletePetStoreById(@PathVariable Long petStoreId) {
+	public Map<String, Object> deletePetStoreById(@PathVariable Long petStoreId) {
 		log.info("Deleting pet store with ID={}", petStoreId);
 
-		petStoreService.deletePetStoreById(petStoreId);
+		PetStoreDeletion deletion = petStoreService.deletePetStoreById(petStoreId);
 
-		return Map.of("message", "Pet store with ID= " + petStoreId + " has been successfully deleted.");
+		return Map.of("message", "Pet store with ID= " + petStoreId + " has been successfully deleted.",
+				"employeesDeleted", deletion.getEmployeesDeleted(),
+				"customerLinksDeleted", deletion.getCustomerLinksDeleted());
 	}
 
 }
@@ -3,12 +3,18 @@ package pet.store.controller.error;
 import java.util.Map;
 import java.util.NoSuchElementException;
 
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
 import lombok.extern.slf4j.Slf4j;
+import pet.store.service.CustomerSignUpQueueFullException;
+import pet.store.service.PetStorePreconditionFailedException;
 
 @RestControllerAdvice
 
@@ -45,6 +51,85 @@ public class GlobalErrorHandler {
 	 * 
 	 * It then returns a Map containing the error message wrapped in a key-value pair.
 	 */
+	
+	@ExceptionHandler(IllegalArgumentException.class)
+	@ResponseStatus(code = HttpStatus.BAD_REQUEST)
+	public Map<String, String> handleIllegalArgumentException(
+			IllegalArgumentException exception) {
+		
+		log.error("IllegalArgumentException occured: {}", exception.getMessage());
+		
+		return Map.of("message", exception.toString());
+	}
+	
+	/*
+	 * handleIllegalArgumentException: Requests that are well formed but not allowed, such as 
+	 * updating a customer through a store the customer does not shop at, are answered with 
+	 * 400 (BAD_REQUEST) instead of a 500.
+	 */
+	
+	@ExceptionHandler(OptimisticLockingFailureException.class)
+	@ResponseStatus(code = HttpStatus.CONFLICT)
+	public Map<String, String> handleOptimisticLockingFailureException(
+			OptimisticLockingFailureException exception) {
+		
+		log.error("OptimisticLockingFailureException occured: {}", exception.getMessage());
+		
+		return Map.of("message", "The pet store was changed by another request. Read it again and retry.");
+	}
+	
+	/*
+	 * handleOptimisticLockingFailureException: An update that lost a race with a concurrent 
+	 * update of the same pet store is answered with 409 (CONFLICT).
+	 */
+	
+	@ExceptionHandler(PetStorePreconditionFailedException.class)
+	@ResponseStatus(code = HttpStatus.PRECONDITION_FAILED)
+	public Map<String, String> handlePetStorePreconditionFailedException(
+			PetStorePreconditionFailedException exception) {
+		
+		log.error("PetStorePreconditionFailedException occured: {}", exception.getMessage());
+		
+		return Map.of("message", "The pet store was changed after the ETag in If-Match was read. Read it again and retry.");
+	}
+	
+	/*
+	 * handlePetStorePreconditionFailedException: An update whose If-Match header names an old 
+	 * version of the pet store is answered with 412 (PRECONDITION_FAILED), as HTTP requires 
+	 * for a failed precondition.
+	 */
+	
+	@ExceptionHandler(DataIntegrityViolationException.class)
+	@ResponseStatus(code = HttpStatus.CONFLICT)
+	public Map<String, String> handleDataIntegrityViolationException(
+			DataIntegrityViolationException exception) {
+		
+		log.error("DataIntegrityViolationException occured: {}", exception.getMostSpecificCause().getMessage());
+		
+		return Map.of("message", "The request conflicts with existing data, such as a customer email that is "
+				+ "already in use. Use PUT /pet_store/{petStoreId}/customer to add or update a customer by email.");
+	}
+	
+	/*
+	 * handleDataIntegrityViolationException: A write that breaks a database constraint, most 
+	 * often the unique customer email, is answered with 409 (CONFLICT) instead of a 500, so 
+	 * clients stop retrying a request that can never succeed as sent.
+	 */
+	
+	@ExceptionHandler(CustomerSignUpQueueFullException.class)
+	public ResponseEntity<Map<String, String>> handleCustomerSignUpQueueFullException(
+			CustomerSignUpQueueFullException exception) {
+		
+		log.warn("CustomerSignUpQueueFullException occured: {}", exception.getMessage());
+		
+		return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).header(HttpHeaders.RETRY_AFTER, "1")
+				.body(Map.of("message", exception.getMessage()));
+	}
+	
+	/*
+	 * handleCustomerSignUpQueueFullException: When the customer sign-up queue is full the 
+	 * client is told to back off with 429 (TOO_MANY_REQUESTS) and a Retry-After header.
+	 */
 }
 
 /*
@@ -0,0 +1,26 @@
+package pet.store.controller.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkImportResult {
+	public static final String CREATED = "CREATED";
+	public static final String REJECTED = "REJECTED";
+	public static final String FAILED = "FAILED";
+
+	private int index;
+	private Long id;
+	private String status;
+	private String message;
+
+	/*
+	 * index is the position of the row in the request array. id is the generated ID when the 
+	 * row was created. status is CREATED, REJECTED (the row itself is invalid) or FAILED (the 
+	 * chunk the row was written in was rolled back), and message explains anything other than 
+	 * CREATED.
+	 */
+}
@@ -0,0 +1,25 @@
+package pet.store.controller.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CustomerSignUpStatus {
+	public static final String QUEUED = "QUEUED";
+
+	private String trackingId;
+	private Long petStoreId;
+	private String status;
+	private Long customerId;
+	private String message;
+
+	/*
+	 * trackingId is returned with the 202 when a sign-up is queued. status starts as QUEUED 
+	 * and becomes one of the BulkImportResult statuses (CREATED, REJECTED or FAILED) once 
+	 * the batch holding the sign-up has been written. customerId is set when it was CREATED, 
+	 * and message explains anything else.
+	 */
+}
@@ -0,0 +1,22 @@
+package pet.store.controller.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PetStoreBatchEntry {
+	public static final String FOUND = "FOUND";
+	public static final String NOT_FOUND = "NOT_FOUND";
+
+	private Long petStoreId;
+	private String status;
+	private PetStoreData petStore;
+
+	/*
+	 * One entry per requested ID, in the order they were requested. status is FOUND, with the 
+	 * full store in petStore, or NOT_FOUND, with petStore left null.
+	 */
+}
@@ -0,0 +1,30 @@
+package pet.store.controller.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PetStoreChangeEvent {
+	public static final String STORE_SAVED = "STORE_SAVED";
+	public static final String STORE_DELETED = "STORE_DELETED";
+	public static final String EMPLOYEE_SAVED = "EMPLOYEE_SAVED";
+	public static final String CUSTOMER_SAVED = "CUSTOMER_SAVED";
+	public static final String EMPLOYEES_IMPORTED = "EMPLOYEES_IMPORTED";
+	public static final String CUSTOMERS_IMPORTED = "CUSTOMERS_IMPORTED";
+	public static final String RESET = "RESET";
+
+	private long sequence;
+	private String type;
+	private Long petStoreId;
+	private Long id;
+
+	/*
+	 * sequence increases with every committed change and is also the SSE event ID, so a 
+	 * client can resume after it. type says what changed, petStoreId which store, and id 
+	 * the employee or customer (null for store and import events). A RESET event means 
+	 * changes were missed and the client should reload what it needs.
+	 */
+}
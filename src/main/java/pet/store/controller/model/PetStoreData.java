@@ -3,6 +3,8 @@ package pet.store.controller.model;
 import java.util.HashSet;
 import java.util.Set;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import pet.store.entity.Customer;
@@ -31,11 +33,18 @@ public class PetStoreData {
 	private Set<PetStoreCustomer> customers = new HashSet<>();
 	private Set<PetStoreEmployee> employees = new HashSet<>();
 	
+	@JsonIgnore
+	private Long version;
+	
 	/*
 	 These fields are the properties (fields) of the PetStoreData class. They represent 
 	 various attributes of a pet store such as ID, name, address, etc.
 	 There are also sets (customers and employees) to hold related entities 
 	 (customers and employees) of the pet store.
+	 
+	 version is the store's version when this data was read. It is not part of the JSON; 
+	 the controller sends it as the ETag, so the ETag always matches the body, even when the 
+	 body comes from the detail cache.
 	 */
 	
 	
@@ -47,6 +56,7 @@ public class PetStoreData {
 		petStoreState = petStore.getPetStoreState();
 		petStoreZip = petStore.getPetStoreZip();
 		petStorePhone = petStore.getPetStorePhone();
+		version = petStore.getVersion();
 		
 	for (Customer customer : petStore.getCustomers()) {
 		customers.add(new PetStoreCustomer(customer));
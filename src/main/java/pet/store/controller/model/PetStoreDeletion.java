@@ -0,0 +1,20 @@
+package pet.store.controller.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PetStoreDeletion {
+	private Long petStoreId;
+	private int employeesDeleted;
+	private int customerLinksDeleted;
+
+	/*
+	 * The result of deleting a pet store: how many employees were deleted with it and how 
+	 * many pet_store_customer links were removed. The customers themselves are kept, since 
+	 * they may shop at other stores.
+	 */
+}
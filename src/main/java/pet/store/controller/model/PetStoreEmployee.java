@@ -1,17 +1,22 @@
 package pet.store.controller.model;
 
+import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import pet.store.entity.Employee;
 
 @Data
 @NoArgsConstructor
+@AllArgsConstructor
 
 /*
  * @Data annotation is from Lombok automatically generates getter and setter methods, toString, 
  * equals, and hashCode methods for all fields in the class. 
  * 
  * @NoArgsConstructor: This annotation generates a no-argument constructor for the class.
+ * 
+ * @AllArgsConstructor: This annotation generates a constructor taking every field in order. 
+ * The export queries use it to build this class directly in a "select new" expression.
  */
 
 public class PetStoreEmployee {
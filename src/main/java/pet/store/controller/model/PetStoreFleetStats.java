@@ -0,0 +1,25 @@
+package pet.store.controller.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+
+/*
+ * @AllArgsConstructor: The fleet query in PetStoreDao builds this object with a "select new" 
+ * expression.
+ */
+
+public class PetStoreFleetStats {
+	private Long petStoreCount;
+	private Long employeeCount;
+	private Long customerCount;
+
+	/*
+	 * Totals over every store. customerCount adds up each store's customers, so a customer 
+	 * who shops at two stores is counted twice.
+	 */
+}
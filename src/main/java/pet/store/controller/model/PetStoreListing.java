@@ -0,0 +1,22 @@
+package pet.store.controller.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class PetStoreListing<T> {
+	private List<T> petStores = new ArrayList<>();
+	private Long nextCursor;
+
+	/*
+	 * petStores holds one page of pet stores ordered by petStoreId: PetStoreSummary objects 
+	 * normally, or maps holding only the requested columns when the client passed "fields".
+	 * 
+	 * nextCursor is the petStoreId to pass as "after" to fetch the next page. It is null 
+	 * when this is the last page.
+	 */
+}
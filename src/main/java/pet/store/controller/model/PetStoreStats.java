@@ -0,0 +1,19 @@
+package pet.store.controller.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PetStoreStats {
+	private Long petStoreId;
+	private String petStoreName;
+	private long employeeCount;
+	private long customerCount;
+
+	/*
+	 * The statistics of one store, read from the counters on its pet_store row.
+	 */
+}
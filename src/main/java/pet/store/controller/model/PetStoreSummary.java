@@ -0,0 +1,30 @@
+package pet.store.controller.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+
+/*
+ * @AllArgsConstructor: This annotation generates a constructor that takes every field in 
+ * declaration order. The summary query in PetStoreDao uses it in a "select new" expression.
+ */
+
+public class PetStoreSummary {
+	private Long petStoreId;
+	private String petStoreName;
+	private String petStoreAddress;
+	private String petStoreCity;
+	private String petStoreState;
+	private String petStoreZip;
+	private String petStorePhone;
+}
+
+/*
+ In summary, this PetStoreSummary class holds only the columns of the pet_store table. It is 
+ built directly by the database query, so listing stores never touches the customer or 
+ employee tables.
+ */
@@ -1,9 +1,95 @@
 package pet.store.dao;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import jakarta.persistence.QueryHint;
+import pet.store.controller.model.PetStoreCustomer;
 import pet.store.entity.Customer;
 
 public interface CustomerDao extends JpaRepository<Customer, Long> {
 
+	@Query("select c.customerEmail from Customer c where c.customerEmail in :emails")
+	List<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
+	/*
+	 * findExistingEmails: Returns which of the given emails already belong to a customer, 
+	 * so a bulk import can reject those rows before writing anything.
+	 */
+
+	@Query(value = "select pet_store_id from pet_store_customer where customer_id = :customerId", nativeQuery = true)
+	List<Long> findPetStoreIdsByCustomerId(@Param("customerId") Long customerId);
+
+	/*
+	 * findPetStoreIdsByCustomerId: Reads the IDs of the stores a customer shops at straight 
+	 * from the join table, without loading the PetStore entities.
+	 */
+
+	@Query(value = "select count(*) from pet_store_customer where pet_store_id = :petStoreId and customer_id = :customerId",
+			nativeQuery = true)
+	long countPetStoreCustomerLinks(@Param("petStoreId") Long petStoreId, @Param("customerId") Long customerId);
+
+	default boolean isCustomerOfPetStore(Long petStoreId, Long customerId) {
+		return countPetStoreCustomerLinks(petStoreId, customerId) > 0;
+	}
+
+	/*
+	 * isCustomerOfPetStore: Checks whether a customer shops at a store with a single lookup on 
+	 * the (pet_store_id, customer_id) primary key of the join table, which Hibernate gives 
+	 * every Set-valued join table. Neither the customer's stores nor the store's customers 
+	 * are loaded.
+	 */
+
+	@Query("select new pet.store.controller.model.PetStoreCustomer(c.customerId, c.customerFirstName, "
+			+ "c.customerLastName, c.customerEmail) from Customer c where c.customerEmail = :email")
+	Optional<PetStoreCustomer> findByCustomerEmail(@Param("email") String email);
+
+	/*
+	 * findByCustomerEmail: Reads a customer by email through the unique index as a DTO, 
+	 * without loading the entity.
+	 */
+
+	@QueryHints({ @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+			@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true") })
+	@Query("select new pet.store.controller.model.PetStoreCustomer(c.customerId, c.customerFirstName, "
+			+ "c.customerLastName, c.customerEmail) from Customer c join c.petStores p where p.petStoreId = :petStoreId")
+	Stream<PetStoreCustomer> streamByPetStoreId(@Param("petStoreId") Long petStoreId);
+
+	/*
+	 * streamByPetStoreId: Reads the customers of a store as a forward-only stream of DTOs, 
+	 * 500 rows per fetch. Nothing is added to the persistence context, so memory stays flat 
+	 * however many customers the store has. The stream must be consumed and closed inside a 
+	 * transaction.
+	 */
+
+	@Query("select new pet.store.controller.model.PetStoreCustomer(c.customerId, c.customerFirstName, "
+			+ "c.customerLastName, c.customerEmail) from Customer c join c.petStores p "
+			+ "where p.petStoreId = :petStoreId and c.customerEmail like :prefix escape '!' "
+			+ "order by c.customerEmail")
+	List<PetStoreCustomer> searchByEmailPrefix(@Param("petStoreId") Long petStoreId, @Param("prefix") String prefix,
+			Pageable pageable);
+
+	@Query("select new pet.store.controller.model.PetStoreCustomer(c.customerId, c.customerFirstName, "
+			+ "c.customerLastName, c.customerEmail) from Customer c join c.petStores p "
+			+ "where p.petStoreId = :petStoreId and c.customerLastName like :prefix escape '!' "
+			+ "order by c.customerLastName, c.customerId")
+	List<PetStoreCustomer> searchByLastNamePrefix(@Param("petStoreId") Long petStoreId,
+			@Param("prefix") String prefix, Pageable pageable);
+
+	/*
+	 * searchByEmailPrefix / searchByLastNamePrefix: Prefix searches within one store. The 
+	 * prefix must already end in % with any wildcards in the user's input escaped, so the 
+	 * database can use the unique email index or idx_customer_last_name as a range scan and 
+	 * check store membership through the pet_store_customer primary key. The Pageable bounds 
+	 * the result size.
+	 */
 }
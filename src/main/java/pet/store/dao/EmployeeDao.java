@@ -1,9 +1,28 @@
 package pet.store.dao;
 
+import java.util.stream.Stream;
+
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import jakarta.persistence.QueryHint;
+import pet.store.controller.model.PetStoreEmployee;
 import pet.store.entity.Employee;
 
 public interface EmployeeDao extends JpaRepository<Employee, Long> {
 
+	@QueryHints({ @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+			@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true") })
+	@Query("select new pet.store.controller.model.PetStoreEmployee(e.employeeId, e.employeeFirstName, "
+			+ "e.employeeLastName, e.employeePhone, e.employeeJobTitle) from Employee e "
+			+ "where e.petStore.petStoreId = :petStoreId")
+	Stream<PetStoreEmployee> streamByPetStoreId(@Param("petStoreId") Long petStoreId);
+
+	/*
+	 * streamByPetStoreId: Reads the employees of a store as a forward-only stream of DTOs, 
+	 * 500 rows per fetch. The stream must be consumed and closed inside a transaction.
+	 */
 }
@@ -1,12 +1,106 @@
 package pet.store.dao;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import pet.store.controller.model.PetStoreFleetStats;
+import pet.store.controller.model.PetStoreSummary;
 import pet.store.entity.PetStore;
 
 // specifies that this DAO interface will deal with entities of type PetStore and primary key of type Long.
 public interface PetStoreDao extends JpaRepository<PetStore, Long> {
 
+	@EntityGraph(PetStore.WITH_EMPLOYEES)
+	Optional<PetStore> findWithEmployeesByPetStoreId(Long petStoreId);
+
+	@EntityGraph(PetStore.WITH_CUSTOMERS)
+	Optional<PetStore> findWithCustomersByPetStoreId(Long petStoreId);
+
+	/*
+	 * findWithEmployeesByPetStoreId / findWithCustomersByPetStoreId: These load a pet store 
+	 * together with one of its collections in a single join query. The two collections are 
+	 * fetched by separate queries on purpose: joining both at once would return one row per 
+	 * (employee, customer) pair.
+	 */
+
+	@EntityGraph(PetStore.WITH_EMPLOYEES)
+	List<PetStore> findWithEmployeesByPetStoreIdIn(Collection<Long> petStoreIds);
+
+	@EntityGraph(PetStore.WITH_CUSTOMERS)
+	List<PetStore> findWithCustomersByPetStoreIdIn(Collection<Long> petStoreIds);
+
+	/*
+	 * findWithEmployeesByPetStoreIdIn / findWithCustomersByPetStoreIdIn: The same two join 
+	 * queries for a batch of stores, with the IDs in one IN list.
+	 */
+
+	@Query("select p.version from PetStore p where p.petStoreId = :petStoreId")
+	Optional<Long> findVersionById(@Param("petStoreId") Long petStoreId);
+
+	/*
+	 * findVersionById: Reads only the version column, which is enough to answer a conditional 
+	 * GET.
+	 */
+
+	@Query("select p.petStoreId, p.version from PetStore p where p.petStoreId in :petStoreIds")
+	List<Object[]> findVersionsByPetStoreIdIn(@Param("petStoreIds") Collection<Long> petStoreIds);
+
+	/*
+	 * findVersionsByPetStoreIdIn: (petStoreId, version) pairs for a batch of stores, in one 
+	 * query. Stores that do not exist are simply missing from the result.
+	 */
+
+	@Query("select new pet.store.controller.model.PetStoreFleetStats(count(p), "
+			+ "coalesce(sum(p.employeeCount), 0), coalesce(sum(p.customerCount), 0)) from PetStore p")
+	PetStoreFleetStats findFleetStats();
+
+	/*
+	 * findFleetStats: Adds up the maintained counters of every store. This reads one row per 
+	 * store and never touches the employee or pet_store_customer tables.
+	 */
+
+	@Query("select new pet.store.controller.model.PetStoreSummary(p.petStoreId, p.petStoreName, "
+			+ "p.petStoreAddress, p.petStoreCity, p.petStoreState, p.petStoreZip, p.petStorePhone) "
+			+ "from PetStore p where p.petStoreId > :afterId order by p.petStoreId")
+	List<PetStoreSummary> findSummariesAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+	/*
+	 * findSummariesAfter: Returns pet store summaries with an ID greater than afterId, in ID 
+	 * order. Only the pet_store columns are selected, so the customer and employee tables are 
+	 * never read. The Pageable only supplies the page size; the position comes from afterId 
+	 * (keyset pagination), which stays fast no matter how deep the client pages.
+	 */
+
+	@Query("select new pet.store.controller.model.PetStoreSummary(p.petStoreId, p.petStoreName, "
+			+ "p.petStoreAddress, p.petStoreCity, p.petStoreState, p.petStoreZip, p.petStorePhone) "
+			+ "from PetStore p where p.petStoreState = :state order by p.petStoreCity, p.petStoreId")
+	List<PetStoreSummary> findSummariesByState(@Param("state") String state);
+
+	@Query("select new pet.store.controller.model.PetStoreSummary(p.petStoreId, p.petStoreName, "
+			+ "p.petStoreAddress, p.petStoreCity, p.petStoreState, p.petStoreZip, p.petStorePhone) "
+			+ "from PetStore p where p.petStoreZip = :zip order by p.petStoreId")
+	List<PetStoreSummary> findSummariesByZip(@Param("zip") String zip, Pageable pageable);
+
+	/*
+	 * findSummariesByState / findSummariesByZip: Location lookups for the store search. They 
+	 * select summaries only, through idx_pet_store_state_city (which also returns a state's 
+	 * stores already sorted by city) and idx_pet_store_zip.
+	 */
+
+	@Query("select p.petStoreState from PetStore p where p.petStoreId = :petStoreId")
+	Optional<String> findStateById(@Param("petStoreId") Long petStoreId);
+
+	/*
+	 * findStateById: Reads only the state of a store, so a delete knows which per-state 
+	 * cache entry to evict.
+	 */
 }
 
 
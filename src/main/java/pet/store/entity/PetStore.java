@@ -3,25 +3,44 @@ package pet.store.entity;
 import java.util.HashSet;
 import java.util.Set;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import jakarta.persistence.CascadeType;
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.JoinTable;
 import jakarta.persistence.ManyToMany;
+import jakarta.persistence.NamedAttributeNode;
+import jakarta.persistence.NamedEntityGraph;
 import jakarta.persistence.OneToMany;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
 
 @Entity
 @Data
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "petStore")
+@NamedEntityGraph(name = PetStore.WITH_EMPLOYEES, attributeNodes = @NamedAttributeNode("employees"))
+@NamedEntityGraph(name = PetStore.WITH_CUSTOMERS, attributeNodes = @NamedAttributeNode("customers"))
+@Table(indexes = { @Index(name = "idx_pet_store_state_city", columnList = "pet_store_state, pet_store_city"),
+		@Index(name = "idx_pet_store_zip", columnList = "pet_store_zip") })
 public class PetStore {
 	
+	public static final String WITH_EMPLOYEES = "PetStore.withEmployees";
+	public static final String WITH_CUSTOMERS = "PetStore.withCustomers";
+	
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "pet_store_seq")
+	@SequenceGenerator(name = "pet_store_seq", sequenceName = "pet_store_seq", allocationSize = 50)
 	private Long petStoreId;
 	
 	private String petStoreName;
@@ -31,8 +50,25 @@ public class PetStore {
 	private String petStoreZip;
 	private String petStorePhone;
 	
+	@Version
+	private long version;
+	
+	@Column(columnDefinition = "bigint not null default -1")
+	private long employeeCount;
+	
+	@Column(columnDefinition = "bigint not null default -1")
+	private long customerCount;
+	
+	/*
+	 * employeeCount and customerCount are kept up to date by the write paths in 
+	 * PetStoreService so store statistics never have to count the employee or 
+	 * pet_store_customer rows. -1 means "not counted yet": it is what rows that existed 
+	 * before these columns get, and migration V4 counts them.
+	 */
+	
 	@EqualsAndHashCode.Exclude
 	@ToString.Exclude
+	@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "petStoreCustomers")
 	@ManyToMany(cascade = CascadeType.PERSIST)
 	@JoinTable(name = "pet_store_customer", joinColumns = @JoinColumn(
 			name = "pet_store_id"), inverseJoinColumns = @JoinColumn(name = "customer_id"))
@@ -41,6 +77,7 @@ public class PetStore {
 	
 	@EqualsAndHashCode.Exclude
 	@ToString.Exclude
+	@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "petStoreEmployees")
 	@OneToMany(mappedBy = "petStore", cascade = CascadeType.ALL, orphanRemoval = true)
 	private Set<Employee> employees = new HashSet<>();
 
@@ -0,0 +1,85 @@
+package pet.store.migration;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+/************************************************************************************************
+ * Base class of the schema migrations after V1. Databases that ran with ddl-auto=update may
+ * already have some of the tables, columns and indexes a migration adds, and MySQL has no
+ * IF [NOT] EXISTS for columns or indexes. So each migration checks the database metadata first
+ * and only makes the changes that are still missing. The same checks work on MySQL and on the
+ * H2 database the tests use.
+ ************************************************************************************************/
+
+abstract class SchemaMigration extends BaseJavaMigration {
+
+	protected boolean hasTable(Context context, String table) throws SQLException {
+		Connection connection = context.getConnection();
+
+		try (ResultSet tables = connection.getMetaData().getTables(connection.getCatalog(), connection.getSchema(),
+				identifier(connection, table), null)) {
+			return tables.next();
+		}
+	}
+
+	protected boolean hasColumn(Context context, String table, String column) throws SQLException {
+		Connection connection = context.getConnection();
+
+		try (ResultSet columns = connection.getMetaData().getColumns(connection.getCatalog(), connection.getSchema(),
+				identifier(connection, table), identifier(connection, column))) {
+			return columns.next();
+		}
+	}
+
+	protected boolean hasIndex(Context context, String table, String index) throws SQLException {
+		Connection connection = context.getConnection();
+
+		try (ResultSet indexes = connection.getMetaData().getIndexInfo(connection.getCatalog(),
+				connection.getSchema(), identifier(connection, table), false, true)) {
+			while (indexes.next()) {
+				if (index.equalsIgnoreCase(indexes.getString("INDEX_NAME"))) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+	protected boolean isEmpty(Context context, String table) throws SQLException {
+		try (Statement statement = context.getConnection().createStatement();
+				ResultSet rows = statement.executeQuery("select count(*) from " + table)) {
+			rows.next();
+			return rows.getLong(1) == 0;
+		}
+	}
+
+	protected void execute(Context context, String sql) throws SQLException {
+		try (Statement statement = context.getConnection().createStatement()) {
+			statement.execute(sql);
+		}
+	}
+
+	private String identifier(Connection connection, String name) throws SQLException {
+		DatabaseMetaData metaData = connection.getMetaData();
+
+		if (metaData.storesUpperCaseIdentifiers()) {
+			return name.toUpperCase();
+		}
+		if (metaData.storesLowerCaseIdentifiers()) {
+			return name.toLowerCase();
+		}
+		return name;
+	}
+
+	/*
+	 * identifier: Metadata lookups match names exactly, so a name is first put in the case
+	 * the database stores unquoted identifiers in. The migrations use lower case throughout,
+	 * as Hibernate does.
+	 */
+}
@@ -0,0 +1,23 @@
+package pet.store.migration;
+
+import org.flywaydb.core.api.migration.Context;
+
+/************************************************************************************************
+ * Adds pet_store.version for optimistic locking and the detail ETag. ddl-auto may already have
+ * added it while it was still a nullable Long, and ddl-auto never tightens an existing column.
+ * Stores without a version would be treated as new entities, so they get 0 and the column
+ * becomes NOT NULL as the entity expects.
+ ************************************************************************************************/
+
+public class V2__Add_pet_store_version extends SchemaMigration {
+
+	@Override
+	public void migrate(Context context) throws Exception {
+		if (!hasColumn(context, "pet_store", "version")) {
+			execute(context, "alter table pet_store add column version bigint");
+		}
+
+		execute(context, "update pet_store set version = 0 where version is null");
+		execute(context, "alter table pet_store modify version bigint not null");
+	}
+}
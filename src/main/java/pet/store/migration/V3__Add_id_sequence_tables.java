@@ -0,0 +1,41 @@
+package pet.store.migration;
+
+import java.util.Map;
+
+import org.flywaydb.core.api.migration.Context;
+
+/************************************************************************************************
+ * The entities switched from IDENTITY columns to pooled sequences (allocationSize 50), which
+ * Hibernate emulates on MySQL with one single-row *_seq table per entity. This creates any of
+ * those tables that ddl-auto has not, then moves each sequence past the largest ID already
+ * handed out plus one allocation block, so new IDs cannot collide with the IDENTITY ones. On a
+ * new database the sequences simply start at 51.
+ *
+ * The id columns keep AUTO_INCREMENT. Hibernate now always supplies the ID, so it is never
+ * used, and leaving it alone avoids rebuilding columns that foreign keys point at.
+ ************************************************************************************************/
+
+public class V3__Add_id_sequence_tables extends SchemaMigration {
+
+	private static final Map<String, String> ID_COLUMNS = Map.of("pet_store", "pet_store_id", "employee",
+			"employee_id", "customer", "customer_id");
+
+	@Override
+	public void migrate(Context context) throws Exception {
+		for (Map.Entry<String, String> entry : ID_COLUMNS.entrySet()) {
+			String table = entry.getKey();
+			String sequence = table + "_seq";
+
+			if (!hasTable(context, sequence)) {
+				execute(context, "create table " + sequence + " (next_val bigint) engine=InnoDB");
+			}
+
+			if (isEmpty(context, sequence)) {
+				execute(context, "insert into " + sequence + " values (1)");
+			}
+
+			execute(context, "update " + sequence + " set next_val = greatest(next_val, (select coalesce(max("
+					+ entry.getValue() + "), 0) + 51 from " + table + "))");
+		}
+	}
+}
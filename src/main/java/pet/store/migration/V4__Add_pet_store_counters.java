@@ -0,0 +1,26 @@
+package pet.store.migration;
+
+import org.flywaydb.core.api.migration.Context;
+
+/************************************************************************************************
+ * Adds pet_store.employee_count and customer_count, which the write paths keep up to date so
+ * store statistics never count rows. Stores that exist when a column is added get -1 ("not
+ * counted yet"), and are then counted once here rather than on every startup.
+ ************************************************************************************************/
+
+public class V4__Add_pet_store_counters extends SchemaMigration {
+
+	@Override
+	public void migrate(Context context) throws Exception {
+		for (String column : new String[] { "employee_count", "customer_count" }) {
+			if (!hasColumn(context, "pet_store", column)) {
+				execute(context, "alter table pet_store add column " + column + " bigint not null default -1");
+			}
+		}
+
+		execute(context, "update pet_store p "
+				+ "set employee_count = (select count(*) from employee e where e.pet_store_id = p.pet_store_id), "
+				+ "customer_count = (select count(*) from pet_store_customer c where c.pet_store_id = p.pet_store_id) "
+				+ "where p.employee_count < 0 or p.customer_count < 0");
+	}
+}
@@ -0,0 +1,27 @@
+package pet.store.migration;
+
+import org.flywaydb.core.api.migration.Context;
+
+/************************************************************************************************
+ * Indexes for the customer search by last name and the store search by state (rows come back
+ * sorted by city) or by zip. The join tables need nothing new: pet_store_customer's primary key
+ * (pet_store_id, customer_id) serves lookups by store, and the index behind its customer_id
+ * foreign key serves lookups by customer (InnoDB appends the primary key to it, so it covers
+ * both columns). An index ddl-auto has already created is left as it is.
+ ************************************************************************************************/
+
+public class V5__Add_lookup_indexes extends SchemaMigration {
+
+	@Override
+	public void migrate(Context context) throws Exception {
+		createIndex(context, "customer", "idx_customer_last_name", "customer_last_name");
+		createIndex(context, "pet_store", "idx_pet_store_state_city", "pet_store_state, pet_store_city");
+		createIndex(context, "pet_store", "idx_pet_store_zip", "pet_store_zip");
+	}
+
+	private void createIndex(Context context, String table, String index, String columns) throws Exception {
+		if (!hasIndex(context, table, index)) {
+			execute(context, "create index " + index + " on " + table + " (" + columns + ")");
+		}
+	}
+}
@@ -0,0 +1,19 @@
+package pet.store.migration;
+
+import org.flywaydb.core.api.migration.Context;
+
+/************************************************************************************************
+ * For a while PetStore declared a unique index ux_pet_store_customer on (pet_store_id,
+ * customer_id), which only duplicated the join table's primary key, and ddl-auto may have
+ * created it. It costs a second index write on every link, so it is dropped wherever it exists.
+ ************************************************************************************************/
+
+public class V6__Drop_duplicate_pet_store_customer_index extends SchemaMigration {
+
+	@Override
+	public void migrate(Context context) throws Exception {
+		if (hasIndex(context, "pet_store_customer", "ux_pet_store_customer")) {
+			execute(context, "alter table pet_store_customer drop index ux_pet_store_customer");
+		}
+	}
+}
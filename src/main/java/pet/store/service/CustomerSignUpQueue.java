@@ -0,0 +1,298 @@
+package pet.store.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import pet.store.controller.model.BulkImportResult;
+import pet.store.controller.model.CustomerSignUpStatus;
+import pet.store.controller.model.PetStoreCustomer;
+
+/************************************************************************************************
+ * Write-behind ingestion for new customers. Instead of running saveCustomer once per request,
+ * POST /pet_store/{id}/customer puts the sign-up on a bounded in-memory queue and answers 202
+ * with a tracking ID. One background thread takes sign-ups off the queue and writes them with
+ * PetStoreService.saveCustomers, so a burst of sign-ups becomes a few batched transactions.
+ * 
+ * A batch is written when it reaches batch-size sign-ups or when the oldest one has waited
+ * max-delay, whichever comes first. When the queue is full new sign-ups are refused with 429.
+ * On shutdown the queue stops taking sign-ups and everything already queued is written before
+ * the database connections are closed.
+ * 
+ * Queued sign-ups live only in memory: if the process is killed (rather than shut down) they
+ * are lost. Turn this on with pet-store.customer-sign-up-queue.enabled=true.
+ ************************************************************************************************/
+
+@Component
+@ConditionalOnProperty(name = "pet-store.customer-sign-up-queue.enabled", havingValue = "true")
+@Slf4j
+public class CustomerSignUpQueue implements SmartLifecycle {
+
+	@Autowired
+	private PetStoreService petStoreService;
+
+	private final BlockingQueue<SignUp> queue;
+	private final Cache<String, CustomerSignUpStatus> statuses;
+	private final int batchSize;
+	private final long maxDelayMillis;
+	private final long drainTimeoutMillis;
+
+	private volatile boolean accepting;
+	private volatile boolean running;
+	private Thread flusher;
+
+	public CustomerSignUpQueue(@Value("${pet-store.customer-sign-up-queue.capacity:10000}") int capacity,
+			@Value("${pet-store.customer-sign-up-queue.batch-size:500}") int batchSize,
+			@Value("${pet-store.customer-sign-up-queue.max-delay:200ms}") Duration maxDelay,
+			@Value("${pet-store.customer-sign-up-queue.drain-timeout:30s}") Duration drainTimeout,
+			@Value("${pet-store.customer-sign-up-queue.status-retention:1h}") Duration statusRetention,
+			MeterRegistry meterRegistry) {
+
+		this.queue = new ArrayBlockingQueue<>(capacity);
+		this.statuses = Caffeine.newBuilder().expireAfterWrite(statusRetention).build();
+		this.batchSize = batchSize;
+		this.maxDelayMillis = maxDelay.toMillis();
+		this.drainTimeoutMillis = drainTimeout.toMillis();
+
+		Gauge.builder("pet_store.customer_sign_up.queued", queue, BlockingQueue::size)
+				.description("Customer sign-ups waiting to be written").register(meterRegistry);
+	}
+
+	public CustomerSignUpStatus enqueue(Long petStoreId, PetStoreCustomer petStoreCustomer) {
+		petStoreService.requirePetStoreExists(petStoreId);
+
+		if (!accepting) {
+			throw new CustomerSignUpQueueFullException("Customer sign-ups are not being accepted during shutdown");
+		}
+
+		String trackingId = UUID.randomUUID().toString();
+		CustomerSignUpStatus status = new CustomerSignUpStatus(trackingId, petStoreId, CustomerSignUpStatus.QUEUED,
+				null, null);
+
+		statuses.put(trackingId, status);
+
+		if (!queue.offer(new SignUp(trackingId, petStoreId, petStoreCustomer))) {
+			statuses.invalidate(trackingId);
+			throw new CustomerSignUpQueueFullException("Customer sign-up queue is full");
+		}
+
+		return status;
+	}
+
+	/*
+	 * enqueue: Checks that the store exists (so a bad ID is still a 404), records the 
+	 * sign-up as QUEUED and offers it to the queue without waiting. A full queue throws 
+	 * CustomerSignUpQueueFullException.
+	 */
+
+	public CustomerSignUpStatus retrieveStatus(Long petStoreId, String trackingId) {
+		CustomerSignUpStatus status = statuses.getIfPresent(trackingId);
+
+		if (Objects.isNull(status) || !status.getPetStoreId().equals(petStoreId)) {
+			throw new NoSuchElementException("Customer sign-up with tracking ID=" + trackingId + " not found");
+		}
+		return status;
+	}
+
+	/*
+	 * retrieveStatus: Returns the latest status of a sign-up. Statuses are kept for 
+	 * status-retention after their last change and then forgotten.
+	 */
+
+	private void flushLoop() {
+		List<SignUp> batch = new ArrayList<>(batchSize);
+
+		while (running || !queue.isEmpty()) {
+			try {
+				SignUp first = queue.poll(maxDelayMillis, TimeUnit.MILLISECONDS);
+
+				if (Objects.isNull(first)) {
+					continue;
+				}
+
+				batch.add(first);
+				long deadline = System.currentTimeMillis() + maxDelayMillis;
+
+				while (batch.size() < batchSize && running) {
+					queue.drainTo(batch, batchSize - batch.size());
+					long remaining = deadline - System.currentTimeMillis();
+
+					if (batch.size() >= batchSize || remaining <= 0) {
+						break;
+					}
+
+					SignUp next = queue.poll(remaining, TimeUnit.MILLISECONDS);
+
+					if (Objects.isNull(next)) {
+						break;
+					}
+					batch.add(next);
+				}
+
+				queue.drainTo(batch, batchSize - batch.size());
+				flush(batch);
+			} catch (InterruptedException exception) {
+				Thread.currentThread().interrupt();
+				break;
+			} catch (RuntimeException exception) {
+				log.error("Customer sign-up batch could not be written", exception);
+				markQueued(batch, BulkImportResult.FAILED, exception.getMessage());
+			} finally {
+				batch.clear();
+			}
+		}
+	}
+
+	/*
+	 * flushLoop: Waits for a first sign-up, then keeps collecting until the batch is full or 
+	 * max-delay has passed, and writes it. Once stop() has been called it no longer waits for 
+	 * a batch to fill up, and it only exits when the queue is empty. Should anything still 
+	 * escape flush, only the sign-ups that are still QUEUED are marked FAILED; the ones 
+	 * already written keep their status.
+	 */
+
+	private void flush(List<SignUp> batch) {
+		Map<Long, List<SignUp>> byPetStore = new LinkedHashMap<>();
+
+		for (SignUp signUp : batch) {
+			byPetStore.computeIfAbsent(signUp.petStoreId(), id -> new ArrayList<>()).add(signUp);
+		}
+
+		for (Map.Entry<Long, List<SignUp>> entry : byPetStore.entrySet()) {
+			List<SignUp> signUps = entry.getValue();
+
+			for (int start = 0; start < signUps.size(); start += PetStoreService.IMPORT_CHUNK_SIZE) {
+				write(entry.getKey(),
+						signUps.subList(start, Math.min(start + PetStoreService.IMPORT_CHUNK_SIZE, signUps.size())));
+			}
+		}
+
+		log.debug("Wrote {} customer sign-ups for {} pet stores", batch.size(), byPetStore.size());
+	}
+
+	/*
+	 * flush: Groups the batch by store and imports each group with saveCustomers, which does 
+	 * the duplicate-email checks, chunked transactions and JDBC batching. A group is handed 
+	 * over at most IMPORT_CHUNK_SIZE sign-ups at a time, so each call is one transaction that 
+	 * is either written in full or not at all.
+	 */
+
+	private void write(Long petStoreId, List<SignUp> signUps) {
+		try {
+			List<BulkImportResult> results = petStoreService.saveCustomers(petStoreId,
+					signUps.stream().map(SignUp::petStoreCustomer).toList());
+
+			for (int index = 0; index < signUps.size(); index++) {
+				BulkImportResult result = results.get(index);
+				updateStatus(signUps.get(index), result.getStatus(), result.getId(), result.getMessage());
+			}
+		} catch (NoSuchElementException exception) {
+			markAll(signUps, BulkImportResult.REJECTED, exception.getMessage());
+		} catch (RuntimeException exception) {
+			log.error("Customer sign-ups for pet store {} could not be written", petStoreId, exception);
+			markAll(signUps, BulkImportResult.FAILED, exception.getMessage());
+		}
+	}
+
+	/*
+	 * write: Imports one store's sign-ups and turns each BulkImportResult into the status of 
+	 * the matching sign-up. A store deleted after the sign-up was queued rejects them all. Any 
+	 * other exception means the transaction was rolled back, so these sign-ups (and only 
+	 * these) are marked FAILED; groups written before or after keep their own results.
+	 */
+
+	private void markAll(List<SignUp> signUps, String status, String message) {
+		for (SignUp signUp : signUps) {
+			updateStatus(signUp, status, null, message);
+		}
+	}
+
+	private void markQueued(List<SignUp> signUps, String status, String message) {
+		for (SignUp signUp : signUps) {
+			CustomerSignUpStatus current = statuses.getIfPresent(signUp.trackingId());
+
+			if (Objects.isNull(current) || CustomerSignUpStatus.QUEUED.equals(current.getStatus())) {
+				updateStatus(signUp, status, null, message);
+			}
+		}
+	}
+
+	private void updateStatus(SignUp signUp, String status, Long customerId, String message) {
+		statuses.put(signUp.trackingId(),
+				new CustomerSignUpStatus(signUp.trackingId(), signUp.petStoreId(), status, customerId, message));
+	}
+
+	@Override
+	public void start() {
+		running = true;
+		accepting = true;
+
+		flusher = new Thread(this::flushLoop, "customer-sign-up-flusher");
+		flusher.start();
+	}
+
+	@Override
+	public void stop() {
+		accepting = false;
+		running = false;
+
+		log.info("Draining {} queued customer sign-ups", queue.size());
+
+		try {
+			flusher.join(drainTimeoutMillis);
+		} catch (InterruptedException exception) {
+			Thread.currentThread().interrupt();
+		}
+
+		if (flusher.isAlive()) {
+			log.warn("Customer sign-up queue not drained after {} ms; {} sign-ups were not written",
+					drainTimeoutMillis, queue.size());
+			flusher.interrupt();
+		}
+	}
+
+	/*
+	 * stop: Refuses new sign-ups and waits up to drain-timeout for the flusher to write what is 
+	 * left in the queue. This runs after the web server has stopped taking requests (see 
+	 * getPhase) and before the connection pool is closed.
+	 */
+
+	@Override
+	public boolean isRunning() {
+		return Objects.nonNull(flusher) && flusher.isAlive();
+	}
+
+	@Override
+	public int getPhase() {
+		return SmartLifecycle.DEFAULT_PHASE - 4096;
+	}
+
+	/*
+	 * getPhase: Lifecycle beans stop from the highest phase down. Spring Boot stops the web 
+	 * server at DEFAULT_PHASE - 1024 (graceful shutdown) and DEFAULT_PHASE - 2048, so a 
+	 * lower phase drains the queue only after no more requests can arrive.
+	 */
+
+	private record SignUp(String trackingId, Long petStoreId, PetStoreCustomer petStoreCustomer) {
+	}
+}
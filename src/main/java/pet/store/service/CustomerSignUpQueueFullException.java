@@ -0,0 +1,15 @@
+package pet.store.service;
+
+/************************************************************************************************
+ * Thrown when a customer sign-up cannot be queued because the queue is full or the application
+ * is shutting down. GlobalErrorHandler answers it with 429 (TOO_MANY_REQUESTS).
+ ************************************************************************************************/
+
+public class CustomerSignUpQueueFullException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	public CustomerSignUpQueueFullException(String message) {
+		super(message);
+	}
+}
@@ -0,0 +1,91 @@
+package pet.store.service;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import pet.store.controller.model.PetStoreCustomer;
+
+/************************************************************************************************
+ * Remembers the outcome of customer upserts sent with an Idempotency-Key header, so a client
+ * that retries (because it never saw the first answer) gets the same answer back without a
+ * second write. Keys are scoped to the store and kept for pet-store.idempotency.retention.
+ ************************************************************************************************/
+
+@Component
+public class CustomerUpsertIdempotencyCache {
+
+	private final Cache<String, Attempt> attempts;
+
+	public CustomerUpsertIdempotencyCache(@Value("${pet-store.idempotency.retention:24h}") Duration retention,
+			@Value("${pet-store.idempotency.maximum-size:100000}") long maximumSize) {
+		this.attempts = Caffeine.newBuilder().expireAfterWrite(retention).maximumSize(maximumSize).build();
+	}
+
+	public PetStoreCustomer execute(Long petStoreId, String idempotencyKey, PetStoreCustomer petStoreCustomer,
+			Supplier<PetStoreCustomer> upsert) {
+
+		if (Objects.isNull(idempotencyKey) || idempotencyKey.isBlank()) {
+			return upsert.get();
+		}
+
+		String key = petStoreId + ":" + idempotencyKey;
+		Attempt attempt = new Attempt(new PetStoreCustomer(petStoreCustomer.getCustomerId(),
+				petStoreCustomer.getCustomerFirstName(), petStoreCustomer.getCustomerLastName(),
+				petStoreCustomer.getCustomerEmail()), new CompletableFuture<>());
+		Attempt earlier = attempts.asMap().putIfAbsent(key, attempt);
+
+		if (Objects.nonNull(earlier)) {
+			if (!earlier.request().equals(petStoreCustomer)) {
+				throw new IllegalArgumentException(
+						"Idempotency-Key " + idempotencyKey + " was already used for a different customer");
+			}
+			return replay(earlier);
+		}
+
+		try {
+			PetStoreCustomer result = upsert.get();
+			attempt.result().complete(result);
+			return result;
+		} catch (RuntimeException exception) {
+			attempts.asMap().remove(key, attempt);
+			attempt.result().completeExceptionally(exception);
+			throw exception;
+		}
+	}
+
+	/*
+	 * execute: Runs the upsert unless the key has been seen before. A repeat of a finished
+	 * request returns the saved result; a repeat that arrives while the first is still
+	 * running waits for it. A failed upsert is forgotten so that it can be retried. Reusing a
+	 * key for a different customer is rejected with IllegalArgumentException (a 400).
+	 * Requests without a key are not tracked.
+	 */
+
+	private PetStoreCustomer replay(Attempt earlier) {
+		try {
+			return earlier.result().join();
+		} catch (CompletionException exception) {
+			if (exception.getCause() instanceof RuntimeException cause) {
+				throw cause;
+			}
+			throw exception;
+		}
+	}
+
+	/*
+	 * replay: Returns the earlier request's result, or rethrows the exception it failed with
+	 * so the repeat is answered the same way.
+	 */
+
+	private record Attempt(PetStoreCustomer request, CompletableFuture<PetStoreCustomer> result) {
+	}
+}
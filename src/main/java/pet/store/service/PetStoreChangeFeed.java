@@ -0,0 +1,292 @@
+package pet.store.service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import pet.store.controller.model.PetStoreChangeEvent;
+
+/************************************************************************************************
+ * An in-memory feed of committed pet store changes, served as server-sent events by
+ * GET /pet_store/changes. Write paths call publish; the event is numbered and handed to the
+ * subscribers only after the surrounding transaction commits, so a rolled back change is never
+ * announced.
+ * 
+ * The last history-size events are kept so a client that reconnects with Last-Event-ID gets
+ * what it missed. Each subscriber has its own bounded buffer that is written to the connection
+ * on a separate (virtual) thread; a writer only ever does a non-blocking offer. A subscriber
+ * whose buffer fills up is disconnected and can resume from the history.
+ * 
+ * A client that goes away unannounced is only noticed when a write to its connection fails, so
+ * every heartbeat-interval each subscriber is sent an SSE comment. The write to a dead
+ * connection fails and the subscriber is removed, instead of holding its connection until the
+ * next change or the timeout.
+ ************************************************************************************************/
+
+@Component
+@Slf4j
+public class PetStoreChangeFeed implements SmartLifecycle {
+
+	private final int historySize;
+	private final int subscriberBufferSize;
+	private final long timeoutMillis;
+	private final long heartbeatIntervalMillis;
+
+	private final Deque<PetStoreChangeEvent> history = new ArrayDeque<>();
+	private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+	private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+	private final ScheduledExecutorService heartbeats = Executors
+			.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("change-feed-heartbeat").daemon().factory());
+
+	private long sequence = System.currentTimeMillis() * 1000;
+	private volatile boolean running;
+
+	public PetStoreChangeFeed(@Value("${pet-store.change-feed.history-size:10000}") int historySize,
+			@Value("${pet-store.change-feed.subscriber-buffer-size:1000}") int subscriberBufferSize,
+			@Value("${pet-store.change-feed.timeout:30m}") Duration timeout,
+			@Value("${pet-store.change-feed.heartbeat-interval:20s}") Duration heartbeatInterval,
+			MeterRegistry meterRegistry) {
+		this.historySize = historySize;
+		this.subscriberBufferSize = subscriberBufferSize;
+		this.timeoutMillis = timeout.toMillis();
+		this.heartbeatIntervalMillis = heartbeatInterval.toMillis();
+
+		Gauge.builder("pet_store.change_feed.subscribers", subscribers, Set::size)
+				.description("Open change feed connections").register(meterRegistry);
+	}
+
+	/*
+	 * sequence starts from the startup time in microseconds, so sequence numbers keep 
+	 * increasing across restarts and a client resuming from an older run is not confused by 
+	 * numbers being reused.
+	 */
+
+	public void publish(String type, Long petStoreId, Long id) {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					publishNow(type, petStoreId, id);
+				}
+			});
+		} else {
+			publishNow(type, petStoreId, id);
+		}
+	}
+
+	/*
+	 * publish: Announces a change once the current transaction commits, or right away when 
+	 * there is no transaction (the write has then already been committed).
+	 */
+
+	private void publishNow(String type, Long petStoreId, Long id) {
+		List<Subscriber> receivers;
+		PetStoreChangeEvent event;
+
+		synchronized (this) {
+			event = new PetStoreChangeEvent(++sequence, type, petStoreId, id);
+			history.addLast(event);
+
+			if (history.size() > historySize) {
+				history.removeFirst();
+			}
+			receivers = new ArrayList<>(subscribers);
+		}
+
+		for (Subscriber subscriber : receivers) {
+			subscriber.offer(event);
+		}
+	}
+
+	public SseEmitter subscribe(Long lastEventId) {
+		Subscriber subscriber = new Subscriber(new SseEmitter(timeoutMillis));
+
+		try {
+			subscriber.emitter.send(SseEmitter.event().comment("connected"));
+		} catch (IOException exception) {
+			throw new IllegalStateException("Could not open the change feed", exception);
+		}
+
+		synchronized (this) {
+			for (PetStoreChangeEvent event : missedEvents(lastEventId)) {
+				subscriber.offer(event);
+			}
+			subscribers.add(subscriber);
+		}
+
+		subscriber.emitter.onCompletion(() -> subscribers.remove(subscriber));
+		subscriber.emitter.onTimeout(subscriber::close);
+		subscriber.emitter.onError(error -> subscriber.close());
+
+		return subscriber.emitter;
+	}
+
+	/*
+	 * subscribe: Opens a new SSE connection. The "connected" comment makes the response 
+	 * headers go out right away instead of with the first change. With a Last-Event-ID, the 
+	 * events after it are queued first; replay and registration happen under the same lock as 
+	 * publishing, so no event is skipped or sent twice in between.
+	 */
+
+	private List<PetStoreChangeEvent> missedEvents(Long lastEventId) {
+		if (Objects.isNull(lastEventId) || lastEventId == sequence) {
+			return List.of();
+		}
+
+		List<PetStoreChangeEvent> missed = new ArrayList<>();
+
+		for (PetStoreChangeEvent event : history) {
+			if (event.getSequence() > lastEventId) {
+				missed.add(event);
+			}
+		}
+
+		boolean historyCoversGap = lastEventId < sequence && !history.isEmpty()
+				&& history.getFirst().getSequence() <= lastEventId + 1;
+
+		if (!historyCoversGap || missed.size() > subscriberBufferSize) {
+			return List.of(new PetStoreChangeEvent(sequence, PetStoreChangeEvent.RESET, null, null));
+		}
+		return missed;
+	}
+
+	/*
+	 * missedEvents: The events a reconnecting client has not seen. When they are no longer 
+	 * all in the history (or would not fit in the subscriber's buffer), or the ID is not one 
+	 * this feed could have issued, a single RESET event is sent instead.
+	 */
+
+	private void sendHeartbeats() {
+		for (Subscriber subscriber : subscribers) {
+			subscriber.heartbeat();
+		}
+	}
+
+	@Override
+	public void start() {
+		running = true;
+		heartbeats.scheduleAtFixedRate(this::sendHeartbeats, heartbeatIntervalMillis, heartbeatIntervalMillis,
+				TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public void stop() {
+		running = false;
+		heartbeats.shutdownNow();
+
+		for (Subscriber subscriber : subscribers) {
+			subscriber.close();
+		}
+		senders.shutdown();
+	}
+
+	@Override
+	public boolean isRunning() {
+		return running;
+	}
+
+	/*
+	 * stop: Closes every open connection so clients reconnect (with their Last-Event-ID) to 
+	 * another instance or after the restart. This bean is in the default lifecycle phase, 
+	 * so it stops before the web server's graceful shutdown, which would otherwise wait for 
+	 * these never-ending requests until it timed out.
+	 */
+
+	private final class Subscriber {
+		private final SseEmitter emitter;
+		private final BlockingQueue<PetStoreChangeEvent> buffer = new ArrayBlockingQueue<>(subscriberBufferSize);
+		private final AtomicBoolean sending = new AtomicBoolean();
+		private final AtomicBoolean heartbeatDue = new AtomicBoolean();
+		private volatile boolean closed;
+
+		private Subscriber(SseEmitter emitter) {
+			this.emitter = emitter;
+		}
+
+		private void offer(PetStoreChangeEvent event) {
+			if (closed) {
+				return;
+			}
+
+			if (!buffer.offer(event)) {
+				log.warn("Change feed subscriber fell {} events behind; disconnecting it", subscriberBufferSize);
+				close();
+				return;
+			}
+			scheduleSend();
+		}
+
+		private void heartbeat() {
+			if (!closed) {
+				heartbeatDue.set(true);
+				scheduleSend();
+			}
+		}
+
+		private void scheduleSend() {
+			if (sending.compareAndSet(false, true)) {
+				senders.execute(this::send);
+			}
+		}
+
+		private void send() {
+			try {
+				PetStoreChangeEvent event;
+
+				if (heartbeatDue.getAndSet(false)) {
+					emitter.send(SseEmitter.event().comment("heartbeat"));
+				}
+
+				while (!closed && Objects.nonNull(event = buffer.poll())) {
+					emitter.send(SseEmitter.event().id(String.valueOf(event.getSequence())).name(event.getType())
+							.data(event, MediaType.APPLICATION_JSON));
+				}
+			} catch (IOException | IllegalStateException exception) {
+				close();
+			} finally {
+				sending.set(false);
+			}
+
+			if (!closed && (!buffer.isEmpty() || heartbeatDue.get())) {
+				scheduleSend();
+			}
+		}
+
+		private void close() {
+			closed = true;
+			subscribers.remove(this);
+			emitter.complete();
+		}
+	}
+
+	/*
+	 * Subscriber: One open connection. offer never blocks: the event goes into the bounded 
+	 * buffer, and at most one sender task at a time writes the buffer to the connection. A 
+	 * heartbeat goes through the same sender task, so writes never overlap. A full buffer or 
+	 * a failed write closes the connection.
+	 */
+}
@@ -0,0 +1,85 @@
+package pet.store.service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import pet.store.controller.model.PetStoreData;
+
+/************************************************************************************************
+ * This PetStoreDetailCache class evicts entries from the cache of PetStoreData that sits in
+ * front of PetStoreService.retrievePetStoreById. Reads go through @Cacheable; every write
+ * path calls evict with the IDs of the stores it changed.
+ ************************************************************************************************/
+
+@Component
+public class PetStoreDetailCache {
+
+	public static final String CACHE_NAME = "petStoreDetails";
+
+	@Autowired
+	private CacheManager cacheManager;
+
+	public PetStoreData get(Long petStoreId) {
+		Cache cache = cacheManager.getCache(CACHE_NAME);
+
+		return Objects.isNull(cache) ? null : cache.get(petStoreId, PetStoreData.class);
+	}
+
+	/*
+	 * get: Returns the cached store, or null when it is not cached. Used by the batch lookup, 
+	 * which reads the cache itself instead of going through @Cacheable one store at a time.
+	 */
+
+	public void evictIfStale(Long petStoreId, long currentVersion) {
+		PetStoreData cached = get(petStoreId);
+
+		if (Objects.nonNull(cached) && cached.getVersion() < currentVersion) {
+			cacheManager.getCache(CACHE_NAME).evict(petStoreId);
+		}
+	}
+
+	/*
+	 * evictIfStale: Drops the cached store if it is older than the version just read from 
+	 * the database. evict runs again after commit, but a reader that loaded the store before 
+	 * the commit can still put the old data back afterwards; this is where such an entry is 
+	 * caught.
+	 */
+
+	public void evict(Long petStoreId) {
+		evict(List.of(petStoreId));
+	}
+
+	public void evict(Collection<Long> petStoreIds) {
+		Cache cache = cacheManager.getCache(CACHE_NAME);
+
+		if (Objects.isNull(cache) || petStoreIds.isEmpty()) {
+			return;
+		}
+
+		petStoreIds.forEach(cache::evict);
+
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					petStoreIds.forEach(cache::evict);
+				}
+			});
+		}
+	}
+
+	/*
+	 * evict: This method removes the given pet stores from the cache right away and, when 
+	 * called inside a transaction, once more after the transaction commits. The second 
+	 * eviction covers a reader that cached the old data between the first eviction and the 
+	 * commit.
+	 */
+}
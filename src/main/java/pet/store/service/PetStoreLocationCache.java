@@ -0,0 +1,83 @@
+package pet.store.service;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import pet.store.controller.model.PetStoreSummary;
+
+/************************************************************************************************
+ * This PetStoreLocationCache class keeps the summaries of all the stores in a state, which is
+ * what the store search reads. Entries are keyed by the upper-cased state, so "tx" and "TX"
+ * share one entry. savePetStore and deletePetStoreById evict the states they touch.
+ ************************************************************************************************/
+
+@Component
+public class PetStoreLocationCache {
+
+	public static final String CACHE_NAME = "petStoresByState";
+
+	@Autowired
+	private CacheManager cacheManager;
+
+	public List<PetStoreSummary> get(String state, Function<String, List<PetStoreSummary>> loader) {
+		Cache cache = cacheManager.getCache(CACHE_NAME);
+		String key = key(state);
+
+		if (Objects.isNull(cache)) {
+			return loader.apply(key);
+		}
+		return cache.get(key, () -> List.copyOf(loader.apply(key)));
+	}
+
+	/*
+	 * get: Returns the cached stores of a state, loading them with the given query on a miss. 
+	 * The query is given the upper-cased state, so what is cached does not depend on how the 
+	 * first request spelled it. Concurrent misses for the same state run the query once. The cached list is 
+	 * unmodifiable because every search shares it.
+	 */
+
+	public void evict(String... states) {
+		Cache cache = cacheManager.getCache(CACHE_NAME);
+
+		if (Objects.isNull(cache)) {
+			return;
+		}
+
+		for (String state : states) {
+			if (Objects.nonNull(state)) {
+				cache.evict(key(state));
+			}
+		}
+
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					for (String state : states) {
+						if (Objects.nonNull(state)) {
+							cache.evict(key(state));
+						}
+					}
+				}
+			});
+		}
+	}
+
+	/*
+	 * evict: Removes the given states now and again after the transaction commits, the same 
+	 * way PetStoreDetailCache.evict does. A null state (a store without one) is skipped.
+	 */
+
+	private static String key(String state) {
+		return state.trim().toUpperCase(Locale.ROOT);
+	}
+}
@@ -0,0 +1,15 @@
+package pet.store.service;
+
+/************************************************************************************************
+ * Thrown when a conditional update (PUT with If-Match) names a version of the pet store that
+ * is no longer the current one. GlobalErrorHandler answers it with 412 (PRECONDITION_FAILED).
+ ************************************************************************************************/
+
+public class PetStorePreconditionFailedException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	public PetStorePreconditionFailedException(String message) {
+		super(message);
+	}
+}
@@ -1,17 +1,58 @@
 package pet.store.service;
 
-import java.util.LinkedList;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
-
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TupleElement;
+import pet.store.controller.model.BulkImportResult;
+import pet.store.controller.model.PetStoreBatchEntry;
+import pet.store.controller.model.PetStoreChangeEvent;
 import pet.store.controller.model.PetStoreCustomer;
 import pet.store.controller.model.PetStoreData;
+import pet.store.controller.model.PetStoreDeletion;
 import pet.store.controller.model.PetStoreEmployee;
+import pet.store.controller.model.PetStoreFleetStats;
+import pet.store.controller.model.PetStoreListing;
+import pet.store.controller.model.PetStoreStats;
+import pet.store.controller.model.PetStoreSummary;
 import pet.store.dao.CustomerDao;
 import pet.store.dao.EmployeeDao;
 import pet.store.dao.PetStoreDao;
@@ -44,19 +85,71 @@ public class PetStoreService {
 	@Autowired
 	private CustomerDao customerDao;
 
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private PetStoreDetailCache petStoreDetailCache;
+
+	@Autowired
+	private PetStoreLocationCache petStoreLocationCache;
+
+	@Autowired
+	private PetStoreChangeFeed petStoreChangeFeed;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	public static final int MAX_PAGE_SIZE = 500;
+	public static final int IMPORT_CHUNK_SIZE = 500;
+	public static final int MAX_SEARCH_RESULTS = 100;
+	public static final int MAX_BATCH_SIZE = 100;
+	public static final List<String> PET_STORE_FIELDS = List.of("petStoreName", "petStoreAddress", "petStoreCity",
+			"petStoreState", "petStoreZip", "petStorePhone");
+	public static final List<String> PET_STORE_ASSOCIATIONS = List.of("customers", "employees");
+
+	private static final String PET_STORE_CUSTOMERS_ROLE = PetStore.class.getName() + ".customers";
+	private static final String PET_STORE_EMPLOYEES_ROLE = PetStore.class.getName() + ".employees";
+
 	/*
 	 * @Autowired private PetStoreDao petStoreDao;: This injects an instance of
 	 * PetStoreDao into this service. It allows the service to interact with the
 	 * data access layer (DAO) for managing pet store entities.
 	 */
 
+	@Transactional(readOnly = false)
 	public PetStoreData savePetStore(PetStoreData petStoreData) {
+		return savePetStore(petStoreData, null);
+	}
+
+	@Transactional(readOnly = false)
+	public PetStoreData savePetStore(PetStoreData petStoreData, Long expectedVersion) {
 		PetStore petStore = findOrCreatePetStore(petStoreData.getPetStoreId());
 
+		if (Objects.nonNull(expectedVersion) && expectedVersion != petStore.getVersion()) {
+			throw new PetStorePreconditionFailedException("Pet store with ID=" + petStore.getPetStoreId()
+					+ " is at version " + petStore.getVersion() + ", not " + expectedVersion);
+		}
+
+		String previousState = petStore.getPetStoreState();
+
 		copyPetStoreFields(petStore, petStoreData);
 
 		petStore = petStoreDao.save(petStore);
 
+		petStoreDetailCache.evict(petStore.getPetStoreId());
+		petStoreLocationCache.evict(previousState, petStore.getPetStoreState());
+		petStoreChangeFeed.publish(PetStoreChangeEvent.STORE_SAVED, petStore.getPetStoreId(), null);
+
 		return new PetStoreData(petStore);
 	}
 
@@ -67,6 +160,118 @@ public class PetStoreService {
 	 * the incoming PetStoreData object to the PetStore entity. After that, it saves
 	 * the PetStore entity using the petStoreDao and returns the saved data in the
 	 * form of a PetStoreData object.
+	 * 
+	 * When expectedVersion is given (from an If-Match header), the update is refused with 
+	 * PetStorePreconditionFailedException if the store has changed since the client read it. 
+	 * The @Version column also catches a concurrent update between the read and the save.
+	 * 
+	 * The store's old and new states are evicted from PetStoreLocationCache, since either 
+	 * state's store list may have changed.
+	 * 
+	 * The lookup, the save and building the response all run in one read-write transaction: 
+	 * the lookup cannot be sent to the read replica, and the store's employees and customers 
+	 * are loaded before the session closes.
+	 */
+
+	@Transactional(readOnly = true)
+	public Long retrievePetStoreVersion(Long petStoreId) {
+		return petStoreDao.findVersionById(petStoreId)
+				.orElseThrow(() -> new NoSuchElementException("Pet store with ID=" + petStoreId + " not found"));
+	}
+
+	/*
+	 * retrievePetStoreVersion: Returns the current version of a store without loading it. 
+	 * The controller uses it as the ETag of the store detail.
+	 */
+
+	private void petStoresChanged(Collection<Long> petStoreIds) {
+		for (Long petStoreId : new TreeSet<>(petStoreIds)) {
+			petStoreCountsChanged(petStoreId, 0, 0);
+		}
+	}
+
+	/*
+	 * petStoresChanged: Called by the write paths that update an existing customer (adding 
+	 * one goes through petStoreCountsChanged). Those writes do not touch the pet_store row, 
+	 * so Hibernate would not bump the version by itself; this bumps it for every store given, 
+	 * in ascending ID order, which changes the stores' ETags.
+	 */
+
+	private void petStoreCountsChanged(Long petStoreId, int employeesAdded, int customersAdded) {
+		jdbcTemplate.update("update pet_store set version = version + 1, "
+				+ "employee_count = case when employee_count >= 0 then employee_count + ? else employee_count end, "
+				+ "customer_count = case when customer_count >= 0 then customer_count + ? else customer_count end "
+				+ "where pet_store_id = ?", employeesAdded, customersAdded, petStoreId);
+
+		evictPetStoreEntity(petStoreId);
+		petStoreDetailCache.evict(petStoreId);
+	}
+
+	/*
+	 * petStoreCountsChanged: Bumps a store's version and adjusts its employee and customer 
+	 * counters in one UPDATE. The database applies it atomically against the current row, 
+	 * so concurrent writes to the same store (single adds, import chunks, queued sign-ups) 
+	 * simply queue on the row lock instead of failing a version check. A counter that has not 
+	 * been backfilled yet (-1) is left alone. Hibernate does not see this statement, so the 
+	 * store's second-level cache entry is evicted, along with its detail cache entry.
+	 * 
+	 * Callers run it after their own inserts. The row lock is then held only until commit, 
+	 * and never while Hibernate fetches new IDs from the *_seq tables on a second pooled 
+	 * connection -- a lock holder waiting for a connection held by the transactions queued 
+	 * on its lock would stall the whole pool.
+	 */
+
+	private void evictPetStoreEntity(Long petStoreId) {
+		evictNowAndAfterCommit(cache -> cache.evictEntityData(PetStore.class, petStoreId));
+	}
+
+	private void evictCustomerEntity(Long customerId) {
+		evictNowAndAfterCommit(cache -> cache.evictEntityData(Customer.class, customerId));
+	}
+
+	private void evictCustomerLinks(Long petStoreId) {
+		evictNowAndAfterCommit(cache -> cache.evictCollectionData(PET_STORE_CUSTOMERS_ROLE, petStoreId));
+	}
+
+	private void evictEmployees(Long petStoreId) {
+		evictNowAndAfterCommit(cache -> cache.evictCollectionData(PET_STORE_EMPLOYEES_ROLE, petStoreId));
+	}
+
+	private void evictEmployeeEntities(Collection<Long> employeeIds) {
+		evictNowAndAfterCommit(cache -> employeeIds.forEach(id -> cache.evictEntityData(Employee.class, id)));
+	}
+
+	/*
+	 * evictPetStoreEntity / evictCustomerEntity / evictCustomerLinks / evictEmployees / 
+	 * evictEmployeeEntities: The 
+	 * statements this service runs with JdbcTemplate are not seen by Hibernate, and Hibernate 
+	 * does not update the inverse PetStore.employees collection when an employee is saved 
+	 * (auto_evict_collection_cache is off, as for a many-to-many it would drop the whole 
+	 * petStoreCustomers region on every customer write). So each write is followed by 
+	 * evicting exactly the second-level cache entries it changed: one store, one customer, 
+	 * one store's customers or employees collection, or the employees of a deleted store. The 
+	 * rest of each region stays cached.
+	 */
+
+	private void evictNowAndAfterCommit(Consumer<org.hibernate.Cache> eviction) {
+		org.hibernate.Cache cache = entityManagerFactory.getCache().unwrap(org.hibernate.Cache.class);
+
+		eviction.accept(cache);
+
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					eviction.accept(cache);
+				}
+			});
+		}
+	}
+
+	/*
+	 * evictNowAndAfterCommit: Evicts right away and again after commit, so a transaction that 
+	 * read the old row in between cannot leave it cached (the same reasoning as 
+	 * PetStoreDetailCache.evict).
 	 */
 
 	private void copyPetStoreFields(PetStore petStore, PetStoreData petStoreData) {
@@ -120,17 +325,42 @@ public class PetStoreService {
 
 		Employee employee = findOrCreateEmployee(petStoreId, employeeId);
 
+		Map<Long, Integer> employeesAdded = new TreeMap<>();
+
+		if (Objects.isNull(employeeId)) {
+			employeesAdded.put(petStoreId, 1);
+		} else {
+			Long previousPetStoreId = employee.getPetStore().getPetStoreId();
+
+			employeesAdded.put(petStoreId, petStoreId.equals(previousPetStoreId) ? 0 : 1);
+			employeesAdded.putIfAbsent(previousPetStoreId, -1);
+		}
+
 		copyEmployeeFields(employee, petStoreEmployee);
 
 		employee.setPetStore(petStore);
 
-		petStore.getEmployees().add(employee);
-
 		Employee dbEmployee = employeeDao.save(employee);
 
+		employeesAdded.forEach((changedPetStoreId, added) -> {
+			evictEmployees(changedPetStoreId);
+			petStoreCountsChanged(changedPetStoreId, added, 0);
+		});
+
+		petStoreChangeFeed.publish(PetStoreChangeEvent.EMPLOYEE_SAVED, petStoreId, dbEmployee.getEmployeeId());
+
 		return new PetStoreEmployee(dbEmployee);
 	}
 
+	/*
+	 * saveEmployee: This method creates or updates an employee of a store. Only the 
+	 * employee's pet_store_id column is set; the store's employees collection is never 
+	 * loaded, so the cost does not grow with the number of employees in the store. An 
+	 * employee saved under a different store moves there: the old store's employee counter 
+	 * goes down by one and the new store's goes up by one. The stores are updated in 
+	 * ascending ID order, so two opposite moves cannot deadlock on each other's rows.
+	 */
+
 	private void copyEmployeeFields(Employee employee, PetStoreEmployee petStoreEmployee) {
 
 		employee.setEmployeeId(petStoreEmployee.getEmployeeId());
@@ -155,8 +385,9 @@ public class PetStoreService {
 
 	}
 
+	@Transactional(readOnly = false)
 	public PetStoreCustomer saveCustomer(Long petStoreId, PetStoreCustomer petStoreCustomer) {
-		PetStore petStore = findPetStoreById(petStoreId);
+		requirePetStoreExists(petStoreId);
 
 		Long customerId = petStoreCustomer.getCustomerId();
 
@@ -164,16 +395,121 @@ public class PetStoreService {
 
 		copyCustomerFields(customer, petStoreCustomer);
 
-		customer.getPetStores().add(petStore);
+		Customer dbCustomer = customerDao.saveAndFlush(customer);
 
-		petStore.getCustomers().add(customer);
+		if (Objects.isNull(customerId)) {
+			linkCustomerToPetStore(petStoreId, dbCustomer.getCustomerId());
+			petStoreCountsChanged(petStoreId, 0, 1);
+		} else {
+			Set<Long> changedPetStoreIds = new HashSet<>(List.of(petStoreId));
+			changedPetStoreIds.addAll(customerDao.findPetStoreIdsByCustomerId(customerId));
+			petStoresChanged(changedPetStoreIds);
+		}
 
-		Customer dbCustomer = customerDao.save(customer);
+		petStoreChangeFeed.publish(PetStoreChangeEvent.CUSTOMER_SAVED, petStoreId, dbCustomer.getCustomerId());
 
 		return new PetStoreCustomer(dbCustomer);
 
 	}
 
+	/*
+	 * saveCustomer: This method creates or updates a customer of a store. A new customer is 
+	 * linked by inserting one pet_store_customer row directly; an existing customer has 
+	 * already been checked to shop at the store, so it needs no new link. Neither the 
+	 * customer's petStores nor the store's customers collection is loaded.
+	 */
+
+	@Transactional(readOnly = false)
+	public PetStoreCustomer upsertCustomerByEmail(Long petStoreId, PetStoreCustomer petStoreCustomer) {
+		String email = petStoreCustomer.getCustomerEmail();
+
+		if (Objects.isNull(email) || email.isBlank()) {
+			throw new IllegalArgumentException("customerEmail is required to add or update a customer by email");
+		}
+
+		requirePetStoreExists(petStoreId);
+
+		String firstName = petStoreCustomer.getCustomerFirstName();
+		String lastName = petStoreCustomer.getCustomerLastName();
+		Long newCustomerId = nextCustomerId();
+
+		int customerRows = jdbcTemplate.update("insert into customer (customer_id, customer_first_name, "
+				+ "customer_last_name, customer_email) values (?, ?, ?, ?) on duplicate key update "
+				+ "customer_first_name = ?, customer_last_name = ?", newCustomerId, firstName, lastName, email,
+				firstName, lastName);
+		boolean linked = jdbcTemplate.update("insert ignore into pet_store_customer (pet_store_id, customer_id) "
+				+ "select ?, c.customer_id from customer c where c.customer_email = ?", petStoreId, email) > 0;
+
+		PetStoreCustomer savedCustomer = customerDao.findByCustomerEmail(email).orElseThrow();
+		boolean updated = !newCustomerId.equals(savedCustomer.getCustomerId()) && customerRows > 1;
+
+		if (!updated && !linked) {
+			return savedCustomer;
+		}
+
+		Set<Long> changedPetStoreIds = new HashSet<>();
+
+		if (updated) {
+			evictCustomerEntity(savedCustomer.getCustomerId());
+			changedPetStoreIds.addAll(customerDao.findPetStoreIdsByCustomerId(savedCustomer.getCustomerId()));
+		}
+
+		if (linked) {
+			evictCustomerLinks(petStoreId);
+			changedPetStoreIds.remove(petStoreId);
+			petStoreCountsChanged(petStoreId, 0, 1);
+		}
+		petStoresChanged(changedPetStoreIds);
+
+		petStoreChangeFeed.publish(PetStoreChangeEvent.CUSTOMER_SAVED, petStoreId, savedCustomer.getCustomerId());
+
+		return savedCustomer;
+	}
+
+	/*
+	 * upsertCustomerByEmail: Adds or updates a customer keyed on the email rather than the 
+	 * customerId, so a client that re-sends a customer (after a timeout, say) updates it 
+	 * instead of hitting the unique email constraint. The customer row and the store link are 
+	 * each written with a single statement that resolves insert-or-update in the database, 
+	 * with no read beforehand and so no window for a concurrent request to slip in: MySQL's 
+	 * INSERT ... ON DUPLICATE KEY UPDATE on the unique email (the customerId is only used 
+	 * when a row is inserted), then an INSERT IGNORE that looks the customer up by email and 
+	 * skips a link that already exists. A new link bumps the store's customer counter; a 
+	 * changed name gives every other store the customer shops at a new version, as in 
+	 * saveCustomer.
+	 * 
+	 * Re-sending the same customer changes nothing, so it returns right after the two 
+	 * statements: no version bump, no eviction, no event, and the store's ETag still matches. 
+	 * The upsert reports 2 affected rows only when it changed an existing row. An unchanged 
+	 * row counts 0, or 1 under Connector/J's default "found rows" mode, the same as an insert; 
+	 * an insert is told apart by the customer ending up with the new ID. The UPDATE clause 
+	 * binds the names a second time rather than using VALUES(), which MySQL 8.0.20+ 
+	 * deprecates; its replacement, the row alias, is not understood by the H2 database the 
+	 * tests run on.
+	 */
+
+	private Long nextCustomerId() {
+		TransactionTemplate ownTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+		ownTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+		return ownTransaction.execute(status -> {
+			long nextValue = jdbcTemplate.queryForObject("select next_val from customer_seq for update", Long.class);
+
+			jdbcTemplate.update("update customer_seq set next_val = ?", nextValue + 1);
+			return nextValue - Customer.ID_ALLOCATION_SIZE + 1;
+		});
+	}
+
+	/*
+	 * nextCustomerId: Takes one ID from customer_seq, which Customer's pooled generator 
+	 * shares. That generator reads next_val, stores next_val + 50 and hands out the 50 IDs 
+	 * up to the value it read, so everything it has handed out is at most next_val - 50. 
+	 * Taking next_val - 49 and moving next_val up by one keeps that true: the generator's 
+	 * next block starts above the ID taken here. Like the generator, this runs in its own 
+	 * short transaction, so the sequence row is not locked until the upsert commits. When 
+	 * the upsert turns out to be an update the ID is simply not used.
+	 */
+
 	private void copyCustomerFields(Customer customer, PetStoreCustomer petStoreCustomer) {
 
 		customer.setCustomerId(petStoreCustomer.getCustomerId());
@@ -195,52 +531,608 @@ public class PetStoreService {
 		Customer customer = customerDao.findById(customerId)
 				.orElseThrow(() -> new NoSuchElementException("Customer with ID=" + customerId + " does not exist."));
 
-		boolean found = false;
+		if (!customerDao.isCustomerOfPetStore(petStoreId, customerId)) {
+			throw new IllegalArgumentException("Customer with ID=" + customerId + " does not shop at this store");
+		}
+		return customer;
+
+	}
 
-		for (PetStore petStore : customer.getPetStores()) {
-			if (petStore.getPetStoreId() == petStoreId) {
-				found = true;
+	/*
+	 * findCustomerById: This method loads a customer and confirms that the customer 
+	 * shops at the given store. The check is one indexed lookup on the pet_store_customer 
+	 * join table instead of walking the customer's petStores collection.
+	 */
+
+	public List<BulkImportResult> saveEmployees(Long petStoreId, List<PetStoreEmployee> petStoreEmployees) {
+		requirePetStoreExists(petStoreId);
+
+		BulkImportResult[] results = new BulkImportResult[petStoreEmployees.size()];
+		List<Integer> pending = new ArrayList<>();
+
+		for (int index = 0; index < petStoreEmployees.size(); index++) {
+			if (Objects.nonNull(petStoreEmployees.get(index).getEmployeeId())) {
+				results[index] = new BulkImportResult(index, null, BulkImportResult.REJECTED,
+						"Bulk import only creates new employees; employeeId must be empty");
+			} else {
+				pending.add(index);
+			}
+		}
+
+		for (List<Integer> chunk : chunks(pending)) {
+			try {
+				List<Employee> saved = transactionTemplate.execute(status -> {
+					PetStore petStore = petStoreDao.getReferenceById(petStoreId);
+					List<Employee> employees = new ArrayList<>(chunk.size());
+
+					for (Integer index : chunk) {
+						Employee employee = new Employee();
+						copyEmployeeFields(employee, petStoreEmployees.get(index));
+						employee.setPetStore(petStore);
+						employees.add(employee);
+					}
+					List<Employee> dbEmployees = employeeDao.saveAll(employees);
+
+					evictEmployees(petStoreId);
+					petStoreCountsChanged(petStoreId, employees.size(), 0);
+					petStoreChangeFeed.publish(PetStoreChangeEvent.EMPLOYEES_IMPORTED, petStoreId, null);
+					return dbEmployees;
+				});
+
+				for (int i = 0; i < chunk.size(); i++) {
+					results[chunk.get(i)] = new BulkImportResult(chunk.get(i), saved.get(i).getEmployeeId(),
+							BulkImportResult.CREATED, null);
+				}
+			} catch (DataAccessException exception) {
+				markFailed(results, chunk, exception);
+			}
+		}
+
+		return Arrays.asList(results);
+	}
+
+	/*
+	 * saveEmployees: This method imports many new employees into one pet store. Rows that 
+	 * already carry an employeeId are rejected up front. The rest are written in chunks of 
+	 * IMPORT_CHUNK_SIZE, each chunk in its own transaction, so Hibernate can send the inserts 
+	 * as JDBC batches. The employees collection of the store is never loaded. If a chunk 
+	 * fails, only the rows in that chunk are reported as FAILED.
+	 */
+
+	public List<BulkImportResult> saveCustomers(Long petStoreId, List<PetStoreCustomer> petStoreCustomers) {
+		requirePetStoreExists(petStoreId);
+
+		BulkImportResult[] results = new BulkImportResult[petStoreCustomers.size()];
+		Set<String> requestEmails = new HashSet<>();
+
+		for (PetStoreCustomer petStoreCustomer : petStoreCustomers) {
+			if (Objects.nonNull(petStoreCustomer.getCustomerEmail())) {
+				requestEmails.add(petStoreCustomer.getCustomerEmail());
+			}
+		}
+
+		Set<String> existingEmails = requestEmails.isEmpty() ? Set.of()
+				: new HashSet<>(customerDao.findExistingEmails(requestEmails));
+		Set<String> seenEmails = new HashSet<>();
+		List<Integer> pending = new ArrayList<>();
+
+		for (int index = 0; index < petStoreCustomers.size(); index++) {
+			PetStoreCustomer petStoreCustomer = petStoreCustomers.get(index);
+			String email = petStoreCustomer.getCustomerEmail();
+
+			if (Objects.nonNull(petStoreCustomer.getCustomerId())) {
+				results[index] = new BulkImportResult(index, null, BulkImportResult.REJECTED,
+						"Bulk import only creates new customers; customerId must be empty");
+			} else if (existingEmails.contains(email)) {
+				results[index] = new BulkImportResult(index, null, BulkImportResult.REJECTED,
+						"Customer with email " + email + " already exists");
+			} else if (Objects.nonNull(email) && !seenEmails.add(email)) {
+				results[index] = new BulkImportResult(index, null, BulkImportResult.REJECTED,
+						"Email " + email + " appears more than once in this import");
+			} else {
+				pending.add(index);
+			}
+		}
+
+		for (List<Integer> chunk : chunks(pending)) {
+			try {
+				List<Customer> saved = transactionTemplate.execute(status -> {
+					List<Customer> customers = new ArrayList<>(chunk.size());
+
+					for (Integer index : chunk) {
+						Customer customer = new Customer();
+						copyCustomerFields(customer, petStoreCustomers.get(index));
+						customers.add(customer);
+					}
+
+					List<Customer> dbCustomers = customerDao.saveAllAndFlush(customers);
+
+					jdbcTemplate.batchUpdate("insert into pet_store_customer (pet_store_id, customer_id) values (?, ?)",
+							dbCustomers, dbCustomers.size(), (statement, customer) -> {
+								statement.setLong(1, petStoreId);
+								statement.setLong(2, customer.getCustomerId());
+							});
+
+					evictCustomerLinks(petStoreId);
+					petStoreCountsChanged(petStoreId, 0, dbCustomers.size());
+					petStoreChangeFeed.publish(PetStoreChangeEvent.CUSTOMERS_IMPORTED, petStoreId, null);
+					return dbCustomers;
+				});
+
+				for (int i = 0; i < chunk.size(); i++) {
+					results[chunk.get(i)] = new BulkImportResult(chunk.get(i), saved.get(i).getCustomerId(),
+							BulkImportResult.CREATED, null);
+				}
+			} catch (DataAccessException exception) {
+				markFailed(results, chunk, exception);
+			}
+		}
+
+		return Arrays.asList(results);
+	}
+
+	/*
+	 * saveCustomers: This method imports many new customers into one pet store. Rows with a 
+	 * customerId, an email that is already taken, or an email repeated within the request are 
+	 * rejected before anything is written. The remaining rows are inserted in chunked 
+	 * transactions, and the pet_store_customer link rows are written with one JDBC batch per 
+	 * chunk instead of going through the (possibly huge) customers collection of the store.
+	 */
+
+	@Transactional(readOnly = true)
+	public List<PetStoreCustomer> searchCustomers(Long petStoreId, String email, String lastName, int limit) {
+		boolean byEmail = Objects.nonNull(email) && !email.isBlank();
+		boolean byLastName = Objects.nonNull(lastName) && !lastName.isBlank();
+
+		if (byEmail == byLastName) {
+			throw new IllegalArgumentException("Search by exactly one of email or lastName");
+		}
+
+		requirePetStoreExists(petStoreId);
+
+		PageRequest page = PageRequest.of(0, Math.max(1, Math.min(limit, MAX_SEARCH_RESULTS)));
+
+		if (byEmail) {
+			return customerDao.searchByEmailPrefix(petStoreId, likePrefix(email), page);
+		}
+		return customerDao.searchByLastNamePrefix(petStoreId, likePrefix(lastName), page);
+	}
+
+	private String likePrefix(String prefix) {
+		return prefix.trim().replace("!", "!!").replace("%", "!%").replace("_", "!_") + "%";
+	}
+
+	/*
+	 * searchCustomers: This method finds customers of a store whose email or last name 
+	 * starts with the given text, returning at most MAX_SEARCH_RESULTS rows. likePrefix 
+	 * escapes LIKE wildcards in the input with "!" (a backslash would need escaping itself in 
+	 * MySQL string literals) so "%" or "_" are matched literally and the search always stays 
+	 * a prefix (index range) search.
+	 */
+
+	@Transactional(readOnly = true)
+	public List<PetStoreSummary> searchPetStores(String state, String city, String zip, int limit) {
+		boolean byZip = Objects.nonNull(zip) && !zip.isBlank();
+		boolean byState = Objects.nonNull(state) && !state.isBlank();
+
+		if (!byZip && !byState) {
+			throw new IllegalArgumentException("Search by state (optionally with city) or by zip");
+		}
+
+		int maxResults = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+		List<PetStoreSummary> candidates = byZip
+				? petStoreDao.findSummariesByZip(zip.trim(), PageRequest.of(0, MAX_PAGE_SIZE))
+				: petStoreLocationCache.get(state, petStoreDao::findSummariesByState);
+
+		List<PetStoreSummary> matches = new ArrayList<>();
+
+		for (PetStoreSummary summary : candidates) {
+			if (matches.size() == maxResults) {
 				break;
 			}
+
+			if (matchesLocation(state, summary.getPetStoreState())
+					&& matchesLocation(city, summary.getPetStoreCity())) {
+				matches.add(summary);
+			}
 		}
-		if (!found) {
-			throw new IllegalArgumentException("Customer with ID+" + customerId + " does not shop at this store");
+		return matches;
+	}
+
+	/*
+	 * searchPetStores: Finds stores by location and returns their summaries, at most "limit" 
+	 * of them (clamped to MAX_PAGE_SIZE). A zip search reads the zip index directly. A state 
+	 * search takes the state's stores from PetStoreLocationCache, loading them through the 
+	 * (state, city) index on a miss, and the city, if given, is matched against that list, 
+	 * so repeated searches within a state do not query the database. Matching ignores case, 
+	 * as MySQL's default collation does.
+	 */
+
+	private boolean matchesLocation(String wanted, String actual) {
+		return Objects.isNull(wanted) || wanted.isBlank() || wanted.trim().equalsIgnoreCase(actual);
+	}
+
+	@Transactional(readOnly = true)
+	public void exportCustomers(Long petStoreId, OutputStream outputStream) throws IOException {
+		try (Stream<PetStoreCustomer> customers = customerDao.streamByPetStoreId(petStoreId)) {
+			writeNdjson(customers, outputStream);
 		}
-		return customer;
+	}
 
+	@Transactional(readOnly = true)
+	public void exportEmployees(Long petStoreId, OutputStream outputStream) throws IOException {
+		try (Stream<PetStoreEmployee> employees = employeeDao.streamByPetStoreId(petStoreId)) {
+			writeNdjson(employees, outputStream);
+		}
+	}
+
+	private void writeNdjson(Stream<?> rows, OutputStream outputStream) throws IOException {
+		ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+		try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+			generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+			generator.setRootValueSeparator(null);
+
+			Iterator<?> iterator = rows.iterator();
+
+			while (iterator.hasNext()) {
+				writer.writeValue(generator, iterator.next());
+				generator.writeRaw('\n');
+			}
+		}
 	}
 
-	@Transactional
-	public List<PetStoreData> retrieveAllPetStores() {
-		List<PetStore> petStore = petStoreDao.findAll();
-		List<PetStoreData> result = new LinkedList<>();
+	/*
+	 * exportCustomers / exportEmployees: These methods write every customer or employee of a 
+	 * store to the output stream as newline-delimited JSON (one object per line). Rows are 
+	 * read from a database cursor and written as they arrive, so neither the result set nor 
+	 * the response is ever held in memory. The generator buffers output and leaves flushing 
+	 * to the response, instead of flushing after every row.
+	 */
+
+	private void linkCustomerToPetStore(Long petStoreId, Long customerId) {
+		jdbcTemplate.update("insert into pet_store_customer (pet_store_id, customer_id) values (?, ?)", petStoreId,
+				customerId);
 
-		for (PetStore store : petStore) {
-			PetStoreData psd = new PetStoreData(store);
+		evictCustomerLinks(petStoreId);
+	}
 
-			psd.getCustomers().clear();
-			psd.getEmployees().clear();
+	/*
+	 * linkCustomerToPetStore: Inserts a single row into the join table. This is how a customer 
+	 * is added to a store without initializing PetStore.customers, which would load (and hash) 
+	 * every customer of the store. Only that store's cached customers collection is evicted.
+	 */
 
-			result.add(psd);
+	public void requirePetStoreExists(Long petStoreId) {
+		if (!petStoreDao.existsById(petStoreId)) {
+			throw new NoSuchElementException("Pet store with ID=" + petStoreId + " not found");
 		}
-		return result;
 	}
 
-	@Transactional
+	/*
+	 * requirePetStoreExists: Throws NoSuchElementException (a 404) when the store does not 
+	 * exist, without loading the store.
+	 */
+
+	private List<List<Integer>> chunks(List<Integer> indexes) {
+		List<List<Integer>> chunks = new ArrayList<>();
+
+		for (int start = 0; start < indexes.size(); start += IMPORT_CHUNK_SIZE) {
+			chunks.add(indexes.subList(start, Math.min(start + IMPORT_CHUNK_SIZE, indexes.size())));
+		}
+		return chunks;
+	}
+
+	private void markFailed(BulkImportResult[] results, List<Integer> chunk, DataAccessException exception) {
+		String message = exception.getMostSpecificCause().getMessage();
+
+		for (Integer index : chunk) {
+			results[index] = new BulkImportResult(index, null, BulkImportResult.FAILED, message);
+		}
+	}
+
+	/*
+	 * chunks splits the row indexes into groups of IMPORT_CHUNK_SIZE, and markFailed reports 
+	 * every row of a rolled back chunk as FAILED with the database error message.
+	 */
+
+	@Transactional(readOnly = true)
+	public PetStoreListing<PetStoreSummary> retrieveAllPetStores(Long afterId, int limit) {
+		int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+		long cursor = Objects.isNull(afterId) ? 0L : afterId;
+
+		List<PetStoreSummary> summaries = petStoreDao.findSummariesAfter(cursor, PageRequest.of(0, pageSize + 1));
+		PetStoreListing<PetStoreSummary> listing = new PetStoreListing<>();
+
+		if (summaries.size() > pageSize) {
+			summaries = summaries.subList(0, pageSize);
+			listing.setNextCursor(summaries.get(pageSize - 1).getPetStoreId());
+		}
+
+		listing.setPetStores(summaries);
+		return listing;
+	}
+
+	/*
+	 * retrieveAllPetStores: This method returns one page of pet store summaries that 
+	 * come after the given cursor (a petStoreId). The page size is clamped between 1 and 
+	 * MAX_PAGE_SIZE. One extra row is fetched to find out whether there is another page; 
+	 * if there is, the last ID of this page is returned as the next cursor.
+	 */
+
+	@Transactional(readOnly = true)
+	@Cacheable(cacheNames = PetStoreDetailCache.CACHE_NAME, key = "#petStoreId", sync = true)
 	public PetStoreData retrievePetStoreById(Long petStoreId) {
+		PetStore petStore = petStoreDao.findWithEmployeesByPetStoreId(petStoreId)
+				.orElseThrow(() -> new NoSuchElementException("Pet store with ID=" + petStoreId + " not found"));
 
-		return new PetStoreData(findPetStoreById(petStoreId));
+		petStoreDao.findWithCustomersByPetStoreId(petStoreId);
+
+		return new PetStoreData(petStore);
 	}
 
-	public PetStore deletePetStoreById(Long petStoreId) {
+	/*
+	 * retrievePetStoreById: This method loads a pet store with its employees and 
+	 * customers in exactly two queries. The second query returns the same PetStore 
+	 * instance from the persistence context and fills in its customers, so building 
+	 * PetStoreData afterwards does not trigger any lazy loading.
+	 * 
+	 * @Cacheable: The result is kept in the petStoreDetails cache (size and time bounded, 
+	 * see spring.cache.caffeine.spec), so repeated reads of the same store skip the database. 
+	 * Every write path evicts the stores it touches through PetStoreDetailCache.
+	 */
 
-		PetStore petStore = findPetStoreById(petStoreId);
+	@Transactional(readOnly = true)
+	public PetStoreListing<PetStoreBatchEntry> retrievePetStoresByIds(List<Long> petStoreIds) {
+		Set<Long> requestedIds = new LinkedHashSet<>(petStoreIds);
+
+		if (requestedIds.size() > MAX_BATCH_SIZE) {
+			throw new IllegalArgumentException(
+					"At most " + MAX_BATCH_SIZE + " pet store IDs can be requested at once; got " + requestedIds.size());
+		}
+
+		Map<Long, PetStoreData> petStores = new HashMap<>();
+		Map<Long, PetStoreData> cachedPetStores = new HashMap<>();
+		List<Long> missedIds = new ArrayList<>();
+
+		for (Long petStoreId : requestedIds) {
+			PetStoreData cached = petStoreDetailCache.get(petStoreId);
+
+			if (Objects.nonNull(cached)) {
+				cachedPetStores.put(petStoreId, cached);
+			} else {
+				missedIds.add(petStoreId);
+			}
+		}
 
-		petStoreDao.delete(petStore);
+		if (!cachedPetStores.isEmpty()) {
+			Map<Long, Long> currentVersions = new HashMap<>();
+
+			for (Object[] row : petStoreDao.findVersionsByPetStoreIdIn(cachedPetStores.keySet())) {
+				currentVersions.put((Long) row[0], (Long) row[1]);
+			}
+
+			for (Map.Entry<Long, PetStoreData> cached : cachedPetStores.entrySet()) {
+				if (Objects.equals(cached.getValue().getVersion(), currentVersions.get(cached.getKey()))) {
+					petStores.put(cached.getKey(), cached.getValue());
+				} else {
+					petStoreDetailCache.evict(cached.getKey());
+					missedIds.add(cached.getKey());
+				}
+			}
+		}
+
+		if (!missedIds.isEmpty()) {
+			List<PetStore> loaded = petStoreDao.findWithEmployeesByPetStoreIdIn(missedIds);
+			petStoreDao.findWithCustomersByPetStoreIdIn(missedIds);
+
+			for (PetStore petStore : loaded) {
+				petStores.put(petStore.getPetStoreId(), new PetStoreData(petStore));
+			}
+		}
+
+		PetStoreListing<PetStoreBatchEntry> listing = new PetStoreListing<>();
+
+		for (Long petStoreId : requestedIds) {
+			PetStoreData petStore = petStores.get(petStoreId);
+
+			listing.getPetStores().add(Objects.isNull(petStore)
+					? new PetStoreBatchEntry(petStoreId, PetStoreBatchEntry.NOT_FOUND, null)
+					: new PetStoreBatchEntry(petStoreId, PetStoreBatchEntry.FOUND, petStore));
+		}
+		return listing;
+	}
+
+	/*
+	 * retrievePetStoresByIds: Looks up a batch of stores (at most MAX_BATCH_SIZE distinct 
+	 * IDs) in one call. Stores already in the detail cache are taken from there, once one 
+	 * query for their current versions shows the cached copy is still current. As with the 
+	 * single-store GET (see PetStoreDetailCache.evictIfStale), a reader that loaded a store 
+	 * before a write committed may have cached the old copy after the write's evictions; such 
+	 * an entry, or one for a store that has since been deleted, is evicted and read again. The 
+	 * rest are read like retrievePetStoreById, but for all of them at once: one IN query with 
+	 * the employees joined and one with the customers joined, however many stores there are. 
+	 * An ID that does not exist is reported as NOT_FOUND in its own entry rather than failing 
+	 * the whole batch.
+	 */
+
+	@Transactional(readOnly = true)
+	public PetStoreListing<Map<String, Object>> retrieveAllPetStores(Long afterId, int limit,
+			Collection<String> fields) {
+		int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+		long cursor = Objects.isNull(afterId) ? 0L : afterId;
+
+		List<Tuple> rows = entityManager
+				.createQuery(selectPetStoreFields(fields) + " where p.petStoreId > :afterId order by p.petStoreId",
+						Tuple.class)
+				.setParameter("afterId", cursor).setMaxResults(pageSize + 1).getResultList();
+
+		List<Map<String, Object>> petStores = new ArrayList<>(rows.size());
+
+		for (Tuple row : rows) {
+			petStores.add(toMap(row));
+		}
+
+		PetStoreListing<Map<String, Object>> listing = new PetStoreListing<>();
+
+		if (petStores.size() > pageSize) {
+			petStores = petStores.subList(0, pageSize);
+			listing.setNextCursor((Long) petStores.get(pageSize - 1).get("petStoreId"));
+		}
+
+		listing.setPetStores(petStores);
+		return listing;
+	}
+
+	/*
+	 * retrieveAllPetStores (with fields): The same keyset page as above, but the query 
+	 * selects only petStoreId and the requested columns, and each store comes back as a map 
+	 * of just those values.
+	 */
+
+	@Transactional(readOnly = true)
+	public Map<String, Object> retrievePetStoreById(Long petStoreId, Collection<String> fields,
+			Collection<String> include) {
+
+		for (String association : include) {
+			if (!PET_STORE_ASSOCIATIONS.contains(association)) {
+				throw new IllegalArgumentException(
+						"Unknown include: " + association + "; expected one of " + PET_STORE_ASSOCIATIONS);
+			}
+		}
+
+		List<Tuple> rows = entityManager
+				.createQuery(selectPetStoreFields(fields) + " where p.petStoreId = :petStoreId", Tuple.class)
+				.setParameter("petStoreId", petStoreId).getResultList();
+
+		if (rows.isEmpty()) {
+			throw new NoSuchElementException("Pet store with ID=" + petStoreId + " not found");
+		}
+
+		Map<String, Object> petStore = toMap(rows.get(0));
+
+		if (include.contains("customers")) {
+			try (Stream<PetStoreCustomer> customers = customerDao.streamByPetStoreId(petStoreId)) {
+				petStore.put("customers", customers.toList());
+			}
+		}
+
+		if (include.contains("employees")) {
+			try (Stream<PetStoreEmployee> employees = employeeDao.streamByPetStoreId(petStoreId)) {
+				petStore.put("employees", employees.toList());
+			}
+		}
 
 		return petStore;
 	}
 
+	/*
+	 * retrievePetStoreById (with fields/include): Builds a store holding only the requested 
+	 * columns and associations. The store row is read with just those columns, and customers 
+	 * or employees are read (as DTOs, without loading entities) only when they are included, 
+	 * so data the client did not ask for is never queried. These partial results are not 
+	 * cached; only the full store is.
+	 */
+
+	private String selectPetStoreFields(Collection<String> fields) {
+		Collection<String> requested = Objects.isNull(fields) ? PET_STORE_FIELDS : fields;
+
+		for (String field : requested) {
+			if (!field.equals("petStoreId") && !PET_STORE_FIELDS.contains(field)) {
+				throw new IllegalArgumentException("Unknown field: " + field + "; expected any of " + PET_STORE_FIELDS);
+			}
+		}
+
+		StringBuilder jpql = new StringBuilder("select p.petStoreId as petStoreId");
+
+		for (String field : PET_STORE_FIELDS) {
+			if (requested.contains(field)) {
+				jpql.append(", p.").append(field).append(" as ").append(field);
+			}
+		}
+
+		return jpql.append(" from PetStore p").toString();
+	}
+
+	/*
+	 * selectPetStoreFields: Builds the select clause for a sparse fieldset. Field names are 
+	 * checked against PET_STORE_FIELDS before they go into the query, so only known columns 
+	 * can ever be selected. petStoreId is always included.
+	 */
+
+	private Map<String, Object> toMap(Tuple row) {
+		Map<String, Object> values = new LinkedHashMap<>();
+
+		for (TupleElement<?> element : row.getElements()) {
+			values.put(element.getAlias(), row.get(element));
+		}
+		return values;
+	}
+
+	@Transactional(readOnly = true)
+	public PetStoreStats retrievePetStoreStats(Long petStoreId) {
+		PetStore petStore = findPetStoreById(petStoreId);
+
+		return new PetStoreStats(petStore.getPetStoreId(), petStore.getPetStoreName(), petStore.getEmployeeCount(),
+				petStore.getCustomerCount());
+	}
+
+	/*
+	 * retrievePetStoreStats: Returns the employee and customer counts of one store. They are 
+	 * columns of the pet_store row, so this is a primary key lookup (often answered from the 
+	 * second-level cache) no matter how many employees or customers the store has.
+	 */
+
+	@Transactional(readOnly = true)
+	public PetStoreFleetStats retrieveFleetStats() {
+		return petStoreDao.findFleetStats();
+	}
+
+	/*
+	 * retrieveFleetStats: Returns the number of stores and the total employee and customer 
+	 * counts across all of them, from one aggregate over the pet_store table.
+	 */
+
+	@Transactional(readOnly = false)
+	public PetStoreDeletion deletePetStoreById(Long petStoreId) {
+		requirePetStoreExists(petStoreId);
+
+		String state = petStoreDao.findStateById(petStoreId).orElse(null);
+		List<Long> employeeIds = jdbcTemplate.queryForList(
+				"select employee_id from employee where pet_store_id = ? for update", Long.class, petStoreId);
+
+		int employeesDeleted = jdbcTemplate.update("delete from employee where pet_store_id = ?", petStoreId);
+		int customerLinksDeleted = jdbcTemplate.update("delete from pet_store_customer where pet_store_id = ?",
+				petStoreId);
+		jdbcTemplate.update("delete from pet_store where pet_store_id = ?", petStoreId);
+
+		evictEmployeeEntities(employeeIds);
+		evictEmployees(petStoreId);
+		evictCustomerLinks(petStoreId);
+		evictPetStoreEntity(petStoreId);
+
+		petStoreDetailCache.evict(petStoreId);
+		petStoreLocationCache.evict(state);
+		petStoreChangeFeed.publish(PetStoreChangeEvent.STORE_DELETED, petStoreId, null);
+
+		return new PetStoreDeletion(petStoreId, employeesDeleted, customerLinksDeleted);
+	}
+
+	/*
+	 * deletePetStoreById: This method deletes a pet store with three set-based statements 
+	 * in one transaction: all of its employees, all of its pet_store_customer links, then 
+	 * the store itself. Nothing is loaded into memory, so a large store is removed without 
+	 * Hibernate cascading one row at a time. It returns what was removed. The store's state 
+	 * is read first so its entry in PetStoreLocationCache can be evicted.
+	 * 
+	 * The statements run through JdbcTemplate rather than as JPQL bulk deletes, which would 
+	 * make Hibernate drop the whole employee, petStore and collection cache regions on every 
+	 * store delete. Instead exactly the deleted entries are evicted: the store, its two 
+	 * collections and its employees. The employee IDs are read first with FOR UPDATE, which 
+	 * also keeps a concurrent request from adding an employee to the store (one that would 
+	 * be deleted without being evicted) until this transaction ends.
+	 */
+
 }
 
 /*
@@ -0,0 +1,53 @@
+-- The schema as Hibernate's ddl-auto=update created it from the original entities, before
+-- migrations were introduced: IDENTITY ids, no version column, no counters, no sequence tables
+-- and no indexes of our own. Databases created that way are baselined at this version
+-- (spring.flyway.baseline-on-migrate) and skip this script; an empty database starts here.
+-- Constraint names are the ones Hibernate generated. Every later change is a migration of its
+-- own in pet.store.migration, written so that it also copes with a database on which ddl-auto
+-- already made part of that change.
+
+create table pet_store (
+    pet_store_id bigint not null auto_increment,
+    pet_store_address varchar(255),
+    pet_store_city varchar(255),
+    pet_store_name varchar(255),
+    pet_store_phone varchar(255),
+    pet_store_state varchar(255),
+    pet_store_zip varchar(255),
+    primary key (pet_store_id)
+) engine=InnoDB;
+
+create table employee (
+    employee_id bigint not null auto_increment,
+    pet_store_id bigint,
+    employee_first_name varchar(255),
+    employee_job_title varchar(255),
+    employee_last_name varchar(255),
+    employee_phone varchar(255),
+    primary key (employee_id)
+) engine=InnoDB;
+
+create table customer (
+    customer_id bigint not null auto_increment,
+    customer_email varchar(255),
+    customer_first_name varchar(255),
+    customer_last_name varchar(255),
+    primary key (customer_id)
+) engine=InnoDB;
+
+create table pet_store_customer (
+    customer_id bigint not null,
+    pet_store_id bigint not null,
+    primary key (pet_store_id, customer_id)
+) engine=InnoDB;
+
+alter table customer add constraint UK_qy5hqprdvx8o3dcidcfmf17x4 unique (customer_email);
+
+alter table employee add constraint FK32fcj9ap6a9ljvwrercgmua20
+    foreign key (pet_store_id) references pet_store (pet_store_id);
+
+alter table pet_store_customer add constraint FK3ek9sm1xi7qu3o1as4ln3alat
+    foreign key (customer_id) references customer (customer_id);
+
+alter table pet_store_customer add constraint FKlpdwp26kaurdqxrxg7ir6h05e
+    foreign key (pet_store_id) references pet_store (pet_store_id);
@@ -0,0 +1,39 @@
+package pet.store.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.context.ActiveProfiles;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class BuildTimeConditionsCheckTest {
+
+	@Autowired
+	private ConfigurableApplicationContext context;
+
+	@Test
+	void runtimeSettingsThatDisagreeWithTheBuiltBeansAreReported() {
+		MockEnvironment changedAtDeployTime = new MockEnvironment()
+				.withProperty("pet-store.customer-sign-up-queue.enabled", "true")
+				.withProperty("pet-store.bulkheads.enabled", "false")
+				.withProperty("pet-store.datasource.replica.url", "");
+
+		assertThat(BuildTimeConditionsCheck.mismatches(context.getEnvironment(), context)).isEmpty();
+		assertThat(BuildTimeConditionsCheck.mismatches(changedAtDeployTime, context)).containsExactlyInAnyOrder(
+				"pet-store.datasource.replica.url turns ReadReplicaConfig on but the build has it off",
+				"pet-store.customer-sign-up-queue.enabled turns CustomerSignUpQueue on but the build has it off",
+				"pet-store.bulkheads.enabled turns EndpointBulkheadFilter off but the build has it on");
+	}
+
+	/*
+	 * runtimeSettingsThatDisagreeWithTheBuiltBeansAreReported: The context's own settings
+	 * agree with its beans. Settings changed afterwards, as at deploy time for a jar built
+	 * ahead of time, are each reported with the bean they would have switched; an empty
+	 * replica URL counts as set, as it does for @ConditionalOnProperty.
+	 */
+}
@@ -0,0 +1,77 @@
+package pet.store.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.ActiveProfiles;
+
+import pet.store.controller.model.PetStoreData;
+
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT, properties = { "spring.threads.virtual.enabled=true",
+		"spring.datasource.hikari.maximum-pool-size=" + JdbcConcurrencyFilterTest.POOL_SIZE,
+		"pet-store.virtual-threads.permit-wait-millis=1000" })
+@ActiveProfiles("test")
+class JdbcConcurrencyFilterTest {
+
+	static final int POOL_SIZE = 3;
+
+	@Autowired
+	private TestRestTemplate restTemplate;
+
+	@LocalServerPort
+	private int port;
+
+	@Test
+	void changeFeedSubscribersDoNotHoldPermits() throws Exception {
+		PetStoreData petStoreData = new PetStoreData();
+		petStoreData.setPetStoreName("Subscribed");
+		Long petStoreId = restTemplate.postForObject("/pet_store", petStoreData, PetStoreData.class).getPetStoreId();
+
+		List<InputStream> streams = new ArrayList<>();
+		HttpClient httpClient = HttpClient.newHttpClient();
+
+		try {
+			for (int subscriber = 0; subscriber < POOL_SIZE; subscriber++) {
+				HttpResponse<InputStream> response = httpClient.send(
+						HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/pet_store/changes")).build(),
+						HttpResponse.BodyHandlers.ofInputStream());
+
+				assertThat(response.statusCode()).isEqualTo(HttpStatus.OK.value());
+				streams.add(response.body());
+			}
+
+			assertThat(restTemplate.getForEntity("/pet_store/" + petStoreId, String.class).getStatusCode())
+					.isEqualTo(HttpStatus.OK);
+			assertThat(restTemplate.getForEntity("/pet_store/" + petStoreId + "/stats", String.class)
+					.getStatusCode()).isEqualTo(HttpStatus.OK);
+			assertThat(restTemplate.getForEntity("/actuator/health", String.class).getStatusCode())
+					.isEqualTo(HttpStatus.OK);
+		} finally {
+			for (InputStream stream : streams) {
+				stream.close();
+			}
+			httpClient.shutdownNow();
+		}
+	}
+
+	/*
+	 * changeFeedSubscribersDoNotHoldPermits: Opens as many change feed connections as there
+	 * are permits (one per pooled connection) and keeps them open. A store detail and stats
+	 * request must still be answered, not turned away with 503 after the permit wait, and so
+	 * must the health check.
+	 */
+}
@@ -0,0 +1,77 @@
+package pet.store.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import lombok.extern.slf4j.Slf4j;
+import pet.store.PetStoreApplication;
+import pet.store.controller.PetStoreController;
+import pet.store.controller.model.PetStoreData;
+import pet.store.controller.model.PetStoreEmployee;
+
+@Slf4j
+class ProdStartupTest {
+
+	private static final Duration FIRST_REQUEST_LIMIT = Duration.ofSeconds(30);
+
+	@Test
+	void prodProfileServesItsFirstRequestAndUpdatesStores() {
+		long started = System.nanoTime();
+
+		try (ConfigurableApplicationContext context = new SpringApplicationBuilder(PetStoreApplication.class)
+				.profiles("prod", "test").run("--server.port=0",
+						"--spring.datasource.url=jdbc:h2:mem:prod-startup;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1")) {
+
+			boolean controllerCreatedAtStartup = context.getBeanFactory()
+					.containsSingleton(context.getBeanNamesForType(PetStoreController.class, false, false)[0]);
+			TestRestTemplate restTemplate = new TestRestTemplate(new RestTemplateBuilder().rootUri("http://localhost:"
+					+ ((ServletWebServerApplicationContext) context).getWebServer().getPort()));
+
+			PetStoreData petStoreData = new PetStoreData();
+			petStoreData.setPetStoreName("Original");
+			ResponseEntity<PetStoreData> created = restTemplate.postForEntity("/pet_store", petStoreData,
+					PetStoreData.class);
+			Duration toFirstRequest = Duration.ofNanos(System.nanoTime() - started);
+
+			log.info("Prod profile: started and served its first request in {} ms", toFirstRequest.toMillis());
+
+			assertThat(created.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+			assertThat(controllerCreatedAtStartup).isFalse();
+			assertThat(toFirstRequest).isLessThan(FIRST_REQUEST_LIMIT);
+
+			Long petStoreId = created.getBody().getPetStoreId();
+			PetStoreEmployee employee = new PetStoreEmployee();
+			employee.setEmployeeFirstName("Employee");
+			restTemplate.postForEntity("/pet_store/" + petStoreId + "/employee", employee, PetStoreEmployee.class);
+
+			petStoreData.setPetStoreName("Updated");
+			ResponseEntity<PetStoreData> updated = restTemplate.exchange("/pet_store/" + petStoreId, HttpMethod.PUT,
+					new HttpEntity<>(petStoreData), PetStoreData.class);
+
+			assertThat(updated.getStatusCode()).isEqualTo(HttpStatus.OK);
+			assertThat(updated.getBody().getPetStoreName()).isEqualTo("Updated");
+			assertThat(updated.getBody().getEmployees()).hasSize(1);
+		}
+	}
+
+	/*
+	 * prodProfileServesItsFirstRequestAndUpdatesStores: Starts the application with the prod
+	 * profile (the test profile only swaps in the H2 database) and times it from the start to
+	 * the first answered request, which is logged. The controller must still not exist when
+	 * startup finishes, since lazy initialization leaves it for that first request. A PUT to a
+	 * store with an employee must then succeed with open-in-view off, which means the store's
+	 * collections are read inside the save's transaction rather than after it.
+	 */
+}
@@ -0,0 +1,118 @@
+package pet.store.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.ActiveProfiles;
+
+import pet.store.controller.model.PetStoreData;
+import pet.store.controller.model.PetStoreEmployee;
+import pet.store.controller.model.PetStoreStats;
+
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT, properties = {
+		"spring.datasource.url=" + ReadReplicaRoutingTest.PRIMARY_URL,
+		"pet-store.datasource.replica.url=" + ReadReplicaRoutingTest.REPLICA_URL,
+		"pet-store.datasource.replica.username=sa", "pet-store.datasource.replica.password=" })
+@ActiveProfiles("test")
+class ReadReplicaRoutingTest {
+
+	static final String PRIMARY_URL = "jdbc:h2:mem:routing-primary;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+	static final String REPLICA_URL = "jdbc:h2:mem:routing-replica;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+
+	private final JdbcTemplate primary = new JdbcTemplate(new DriverManagerDataSource(PRIMARY_URL, "sa", ""));
+	private final JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", ""));
+
+	@Autowired
+	private TestRestTemplate restTemplate;
+
+	@BeforeAll
+	static void createReplicaSchema() {
+		Flyway.configure().dataSource(REPLICA_URL, "sa", "")
+				.locations("classpath:db/migration", "classpath:pet/store/migration").load().migrate();
+	}
+
+	/*
+	 * createReplicaSchema: The replica is a second, separate in-memory database. Only the
+	 * primary is migrated by the application, so the replica gets the same schema here.
+	 */
+
+	@Test
+	void writesAfterAReadInTheSameRequestGoToThePrimary() {
+		PetStoreData petStoreData = new PetStoreData();
+		petStoreData.setPetStoreName("Original");
+		Long petStoreId = restTemplate.postForObject("/pet_store", petStoreData, PetStoreData.class).getPetStoreId();
+		replicate(petStoreId);
+
+		petStoreData.setPetStoreName("Updated");
+		ResponseEntity<PetStoreData> updated = restTemplate.exchange("/pet_store/" + petStoreId, HttpMethod.PUT,
+				new HttpEntity<>(petStoreData), PetStoreData.class);
+
+		PetStoreEmployee employee = new PetStoreEmployee();
+		employee.setEmployeeFirstName("Imported");
+		ResponseEntity<String> imported = restTemplate.postForEntity("/pet_store/" + petStoreId + "/employees",
+				List.of(employee), String.class);
+
+		assertThat(updated.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(imported.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(storeName(primary, petStoreId)).isEqualTo("Updated");
+		assertThat(storeName(replica, petStoreId)).isEqualTo("Original");
+		assertThat(employeeCount(primary, petStoreId)).isEqualTo(1);
+		assertThat(employeeCount(replica, petStoreId)).isZero();
+	}
+
+	/*
+	 * writesAfterAReadInTheSameRequestGoToThePrimary: A PUT looks the store up before saving
+	 * it, and an employee import checks that the store exists before inserting. Both writes
+	 * must reach the primary; the replica keeps the copy it was given.
+	 */
+
+	@Test
+	void readOnlyRequestsGoToTheReplica() {
+		replica.update("insert into pet_store (pet_store_id, pet_store_name, version, employee_count, customer_count) "
+				+ "values (9999, 'Only on the replica', 0, 0, 0)");
+
+		ResponseEntity<PetStoreStats> stats = restTemplate.getForEntity("/pet_store/9999/stats", PetStoreStats.class);
+
+		assertThat(stats.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(stats.getBody().getPetStoreName()).isEqualTo("Only on the replica");
+	}
+
+	/*
+	 * readOnlyRequestsGoToTheReplica: A store that exists only on the replica is found by a
+	 * read-only request, which shows reads really are routed there.
+	 */
+
+	private void replicate(Long petStoreId) {
+		Map<String, Object> row = primary.queryForMap("select * from pet_store where pet_store_id = ?", petStoreId);
+
+		replica.update("insert into pet_store (" + String.join(", ", row.keySet()) + ") values ("
+				+ row.keySet().stream().map(column -> "?").collect(Collectors.joining(", ")) + ")",
+				row.values().toArray());
+	}
+
+	private String storeName(JdbcTemplate database, Long petStoreId) {
+		return database.queryForObject("select pet_store_name from pet_store where pet_store_id = ?", String.class,
+				petStoreId);
+	}
+
+	private int employeeCount(JdbcTemplate database, Long petStoreId) {
+		return database.queryForObject("select count(*) from employee where pet_store_id = ?", Integer.class,
+				petStoreId);
+	}
+}
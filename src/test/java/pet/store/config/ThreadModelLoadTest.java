@@ -0,0 +1,159 @@
+package pet.store.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import pet.store.PetStoreApplication;
+import pet.store.controller.model.PetStoreCustomer;
+import pet.store.controller.model.PetStoreData;
+import pet.store.controller.model.PetStoreEmployee;
+import pet.store.service.PetStoreService;
+
+@Slf4j
+class ThreadModelLoadTest {
+
+	private static final int CLIENTS = 60;
+	private static final int REQUESTS_PER_CLIENT = 10;
+	private static final int ROWS = 2000;
+
+	@Test
+	void virtualThreadsKeepWaitingRequestsOutOfTheConnectionPool() throws Exception {
+		LoadResult platform = runLoad(false);
+		LoadResult virtual = runLoad(true);
+
+		log.info("Platform threads: {}", platform);
+		log.info("Virtual threads: {}", virtual);
+
+		assertThat(platform.failures()).isZero();
+		assertThat(virtual.failures()).isZero();
+		assertThat(virtual.meanConnectionWait()).isLessThan(Duration.ofMillis(1));
+	}
+
+	/*
+	 * virtualThreadsKeepWaitingRequestsOutOfTheConnectionPool: Runs the same load against the
+	 * application with platform threads and with virtual threads, each time with 60 clients
+	 * (six times the connection pool) sending a mix of streaming exports and searches. Both
+	 * modes must answer every request. With virtual threads, JdbcConcurrencyFilter must keep
+	 * the excess requests waiting for a permit, so a connection is free whenever a thread asks
+	 * Hikari for one -- including while the exports are still streaming after their initial
+	 * dispatch. The throughput and connection waits of both modes are logged for comparison.
+	 */
+
+	private LoadResult runLoad(boolean virtualThreads) throws Exception {
+		try (ConfigurableApplicationContext context = new SpringApplicationBuilder(PetStoreApplication.class)
+				.profiles("test")
+				.run("--server.port=0", "--spring.threads.virtual.enabled=" + virtualThreads,
+						"--spring.datasource.url=jdbc:h2:mem:load-" + virtualThreads
+								+ ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+						"--pet-store.bulkheads.enabled=false", "--logging.level.pet.store.controller=warn")) {
+
+			Long petStoreId = createPetStore(context.getBean(PetStoreService.class));
+			String baseUrl = "http://localhost:"
+					+ ((ServletWebServerApplicationContext) context).getWebServer().getPort() + "/pet_store/" + petStoreId;
+			List<URI> uris = List.of(URI.create(baseUrl + "/customers/export"),
+					URI.create(baseUrl + "/employees/export"), URI.create(baseUrl + "/customers/search?lastName=Last1"));
+
+			Timer connectionWaits = context.getBean(MeterRegistry.class).get("hikaricp.connections.acquire").timer();
+			AtomicInteger failures = new AtomicInteger();
+
+			long started = System.nanoTime();
+
+			try (HttpClient httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+					ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+
+				for (int client = 0; client < CLIENTS; client++) {
+					int first = client;
+
+					clients.submit(() -> {
+						for (int request = 0; request < REQUESTS_PER_CLIENT; request++) {
+							URI uri = uris.get((first + request) % uris.size());
+
+							try {
+								HttpResponse<Void> response = httpClient.send(HttpRequest.newBuilder(uri).build(),
+										HttpResponse.BodyHandlers.discarding());
+
+								if (response.statusCode() != 200) {
+									failures.incrementAndGet();
+								}
+							} catch (Exception exception) {
+								failures.incrementAndGet();
+							}
+						}
+						return null;
+					});
+				}
+			}
+
+			Duration elapsed = Duration.ofNanos(System.nanoTime() - started);
+
+			return new LoadResult(CLIENTS * REQUESTS_PER_CLIENT, failures.get(),
+					Duration.ofNanos((long) connectionWaits.mean(TimeUnit.NANOSECONDS)),
+					Duration.ofNanos((long) connectionWaits.max(TimeUnit.NANOSECONDS)), elapsed);
+		}
+	}
+
+	/*
+	 * runLoad: Starts the application on a random port with its own in-memory database,
+	 * creates one store with ROWS customers and employees, then lets every client send its
+	 * requests one after another. Hikari's acquire timer records how long each borrow waited
+	 * for a pooled connection. (Its waiting-thread count is not used: it also counts a borrow
+	 * that finds an idle connection but missed the thread-local cache, as every virtual
+	 * thread's first borrow does.) The bulkheads are turned off so that only the thread model
+	 * decides how requests are admitted.
+	 */
+
+	private Long createPetStore(PetStoreService petStoreService) {
+		PetStoreData petStoreData = new PetStoreData();
+		petStoreData.setPetStoreName("Load test");
+		Long petStoreId = petStoreService.savePetStore(petStoreData).getPetStoreId();
+
+		List<PetStoreEmployee> employees = new ArrayList<>();
+		List<PetStoreCustomer> customers = new ArrayList<>();
+
+		for (int i = 0; i < ROWS; i++) {
+			PetStoreEmployee employee = new PetStoreEmployee();
+			employee.setEmployeeFirstName("Employee " + i);
+			employees.add(employee);
+
+			PetStoreCustomer customer = new PetStoreCustomer();
+			customer.setCustomerLastName("Last" + i);
+			customer.setCustomerEmail("load-" + i + "@example.com");
+			customers.add(customer);
+		}
+
+		petStoreService.saveEmployees(petStoreId, employees);
+		petStoreService.saveCustomers(petStoreId, customers);
+		return petStoreId;
+	}
+
+	private record LoadResult(int requests, int failures, Duration meanConnectionWait,
+			Duration longestConnectionWait, Duration elapsed) {
+
+		@Override
+		public String toString() {
+			return String.format(
+					"%d requests in %d ms (%.0f/s), %d failed, connection wait %.2f ms on average and %d ms at most",
+					requests, elapsed.toMillis(), requests * 1000.0 / Math.max(1, elapsed.toMillis()), failures,
+					meanConnectionWait.toNanos() / 1_000_000.0, longestConnectionWait.toMillis());
+		}
+	}
+}
@@ -0,0 +1,92 @@
+package pet.store.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+
+import pet.store.controller.model.PetStoreData;
+import pet.store.service.PetStoreDetailCache;
+
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+class PetStoreETagTest {
+
+	@Autowired
+	private TestRestTemplate restTemplate;
+
+	@Autowired
+	private CacheManager cacheManager;
+
+	@Test
+	void etagMatchesTheBodyWhenALateReaderCachedAnOldVersion() {
+		PetStoreData petStoreData = createPetStore("Before");
+		Long petStoreId = petStoreData.getPetStoreId();
+
+		ResponseEntity<PetStoreData> before = restTemplate.getForEntity("/pet_store/" + petStoreId, PetStoreData.class);
+		PetStoreData oldDetail = cacheManager.getCache(PetStoreDetailCache.CACHE_NAME).get(petStoreId,
+				PetStoreData.class);
+
+		petStoreData.setPetStoreName("After");
+		restTemplate.put("/pet_store/" + petStoreId, petStoreData);
+		cacheManager.getCache(PetStoreDetailCache.CACHE_NAME).put(petStoreId, oldDetail);
+
+		ResponseEntity<PetStoreData> after = restTemplate.getForEntity("/pet_store/" + petStoreId, PetStoreData.class);
+
+		assertThat(after.getBody().getPetStoreName()).isEqualTo("After");
+		assertThat(after.getHeaders().getETag()).isNotEqualTo(before.getHeaders().getETag());
+
+		HttpHeaders headers = new HttpHeaders();
+		headers.setIfNoneMatch(after.getHeaders().getETag());
+		ResponseEntity<String> revalidated = restTemplate.exchange("/pet_store/" + petStoreId, HttpMethod.GET,
+				new HttpEntity<>(headers), String.class);
+
+		assertThat(revalidated.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+	}
+
+	/*
+	 * etagMatchesTheBodyWhenALateReaderCachedAnOldVersion: Puts the old detail back into the
+	 * cache after an update, as a reader that loaded it before the update committed would.
+	 * The next GET must return the new body with the new ETag, never the old body under the
+	 * new ETag, and that ETag must then revalidate with 304.
+	 */
+
+	@Test
+	void staleIfMatchIsAPreconditionFailure() {
+		PetStoreData petStoreData = createPetStore("Original");
+		Long petStoreId = petStoreData.getPetStoreId();
+		String eTag = restTemplate.getForEntity("/pet_store/" + petStoreId, String.class).getHeaders().getETag();
+
+		petStoreData.setPetStoreName("First update");
+		restTemplate.put("/pet_store/" + petStoreId, petStoreData);
+
+		HttpHeaders headers = new HttpHeaders();
+		headers.setIfMatch(eTag);
+		petStoreData.setPetStoreName("Second update");
+		ResponseEntity<String> response = restTemplate.exchange("/pet_store/" + petStoreId, HttpMethod.PUT,
+				new HttpEntity<>(petStoreData, headers), String.class);
+
+		assertThat(response.getStatusCode()).isEqualTo(HttpStatus.PRECONDITION_FAILED);
+	}
+
+	/*
+	 * staleIfMatchIsAPreconditionFailure: An update sent with the ETag of a version that has
+	 * since been replaced is answered with 412.
+	 */
+
+	private PetStoreData createPetStore(String name) {
+		PetStoreData petStoreData = new PetStoreData();
+		petStoreData.setPetStoreName(name);
+		return restTemplate.postForObject("/pet_store", petStoreData, PetStoreData.class);
+	}
+}
@@ -0,0 +1,119 @@
+package pet.store.migration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import pet.store.PetStoreApplication;
+import pet.store.controller.model.PetStoreCustomer;
+import pet.store.controller.model.PetStoreData;
+import pet.store.controller.model.PetStoreEmployee;
+import pet.store.controller.model.PetStoreStats;
+import pet.store.service.PetStoreService;
+
+class MigrationUpgradeTest {
+
+	private static final String[] PARTLY_UPDATED_BY_DDL_AUTO = {
+			"alter table pet_store add column version bigint",
+			"alter table pet_store add column employee_count bigint not null default -1",
+			"create table pet_store_seq (next_val bigint) engine=InnoDB",
+			"insert into pet_store_seq values (1)",
+			"create index idx_customer_last_name on customer (customer_last_name)",
+			"create unique index ux_pet_store_customer on pet_store_customer (pet_store_id, customer_id)" };
+
+	@ParameterizedTest
+	@ValueSource(booleans = { false, true })
+	void upgradesTheDeployedSchema(boolean partlyUpdatedByDdlAuto) throws Exception {
+		String url = "jdbc:h2:mem:upgrade-" + partlyUpdatedByDdlAuto
+				+ ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+		DataSource dataSource = new DriverManagerDataSource(url, "sa", "");
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+
+		new ResourceDatabasePopulator(new ClassPathResource("db/migration/V1__baseline_schema.sql"))
+				.execute(dataSource);
+
+		if (partlyUpdatedByDdlAuto) {
+			jdbcTemplate.batchUpdate(PARTLY_UPDATED_BY_DDL_AUTO);
+		}
+
+		jdbcTemplate.update("insert into pet_store (pet_store_name) values ('First'), ('Second')");
+		jdbcTemplate.update("insert into employee (pet_store_id, employee_first_name) values (1, 'A'), (1, 'B')");
+		jdbcTemplate.update("insert into customer (customer_email) values ('a@example.com'), ('b@example.com')");
+		jdbcTemplate.update("insert into pet_store_customer (pet_store_id, customer_id) values (1, 1), (1, 2), (2, 2)");
+
+		try (ConfigurableApplicationContext context = new SpringApplicationBuilder(PetStoreApplication.class)
+				.profiles("test").run("--spring.main.web-application-type=none", "--spring.datasource.url=" + url)) {
+
+			PetStoreService petStoreService = context.getBean(PetStoreService.class);
+
+			assertThat(context.getBean(Flyway.class).info().current().getVersion().getVersion()).isEqualTo("6");
+			assertStats(petStoreService.retrievePetStoreStats(1L), 2, 2);
+			assertStats(petStoreService.retrievePetStoreStats(2L), 0, 1);
+			assertThat(petStoreService.retrievePetStoreVersion(1L)).isZero();
+
+			PetStoreData first = petStoreService.retrievePetStoreById(1L);
+			first.setPetStoreName("First, renamed");
+			assertThat(petStoreService.savePetStore(first).getPetStoreName()).isEqualTo("First, renamed");
+
+			PetStoreData third = new PetStoreData();
+			third.setPetStoreName("Third");
+			Long thirdId = petStoreService.savePetStore(third).getPetStoreId();
+			PetStoreEmployee employee = new PetStoreEmployee();
+			employee.setEmployeeFirstName("C");
+			PetStoreCustomer customer = new PetStoreCustomer();
+			customer.setCustomerEmail("c@example.com");
+
+			assertThat(thirdId).isGreaterThan(2);
+			assertThat(petStoreService.saveEmployee(thirdId, employee).getEmployeeId()).isGreaterThan(2);
+			assertThat(petStoreService.saveCustomer(thirdId, customer).getCustomerId()).isGreaterThan(2);
+			assertThat(indexes(dataSource, "pet_store_customer")).doesNotContain("ux_pet_store_customer");
+			assertThat(indexes(dataSource, "pet_store")).contains("idx_pet_store_state_city", "idx_pet_store_zip");
+			assertThat(indexes(dataSource, "customer")).contains("idx_customer_last_name");
+		}
+	}
+
+	/*
+	 * upgradesTheDeployedSchema: Builds the schema the original entities got from ddl-auto
+	 * (V1), with stores, employees and customers in it, and starts the application on it.
+	 * Flyway must baseline it at version 1 and apply the rest, and Hibernate must then
+	 * validate the result. The second run first applies part of the later changes the way
+	 * ddl-auto would have (the version column while it was nullable, one of the counters, one
+	 * sequence table, the last-name index and the since-dropped join table index), which the
+	 * migrations must skip or undo rather than fail on. Either way the counters are backfilled,
+	 * existing stores get version 0 and can be updated, new IDs do not collide with the old
+	 * IDENTITY ones, and the indexes end up as the entities declare them.
+	 */
+
+	private void assertStats(PetStoreStats stats, long employees, long customers) {
+		assertThat(stats.getEmployeeCount()).isEqualTo(employees);
+		assertThat(stats.getCustomerCount()).isEqualTo(customers);
+	}
+
+	private List<String> indexes(DataSource dataSource, String table) throws Exception {
+		List<String> names = new ArrayList<>();
+
+		try (Connection connection = dataSource.getConnection();
+				ResultSet indexes = connection.getMetaData().getIndexInfo(connection.getCatalog(),
+						connection.getSchema(), table, false, true)) {
+			while (indexes.next()) {
+				names.add(indexes.getString("INDEX_NAME").toLowerCase());
+			}
+		}
+		return names;
+	}
+}
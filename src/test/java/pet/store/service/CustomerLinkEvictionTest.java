@@ -0,0 +1,188 @@
+package pet.store.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.hibernate.Cache;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceContext;
+import pet.store.controller.model.PetStoreCustomer;
+import pet.store.controller.model.PetStoreData;
+import pet.store.controller.model.PetStoreEmployee;
+import pet.store.entity.Customer;
+import pet.store.entity.Employee;
+import pet.store.entity.PetStore;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class CustomerLinkEvictionTest {
+
+	private static final String CUSTOMERS_ROLE = PetStore.class.getName() + ".customers";
+	private static final String EMPLOYEES_ROLE = PetStore.class.getName() + ".employees";
+
+	@Autowired
+	private PetStoreService petStoreService;
+
+	@Autowired
+	private PetStoreDetailCache petStoreDetailCache;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Test
+	void addingACustomerEvictsOnlyThatStoresCollection() {
+		Long changed = createPetStore("Changed");
+		Long untouched = createPetStore("Untouched");
+		Long untouchedCustomerId = petStoreService.saveCustomer(untouched, customer("untouched@example.com"))
+				.getCustomerId();
+
+		loadDetail(changed);
+		loadDetail(untouched);
+
+		Cache cache = cache();
+		assertThat(cache.containsCollection(CUSTOMERS_ROLE, changed)).isTrue();
+		assertThat(cache.containsCollection(CUSTOMERS_ROLE, untouched)).isTrue();
+
+		petStoreService.saveCustomer(changed, customer("changed@example.com"));
+		petStoreService.upsertCustomerByEmail(changed, customer("upserted@example.com"));
+
+		assertThat(cache.containsCollection(CUSTOMERS_ROLE, changed)).isFalse();
+		assertThat(cache.containsCollection(CUSTOMERS_ROLE, untouched)).isTrue();
+		assertThat(cache.containsEntity(Customer.class, untouchedCustomerId)).isTrue();
+		assertThat(petStoreService.retrievePetStoreById(changed).getCustomers()).hasSize(2);
+	}
+
+	/*
+	 * addingACustomerEvictsOnlyThatStoresCollection: Adding and upserting customers at one
+	 * store drops that store's cached customers collection and nothing else: the other store's
+	 * collection and its customer stay in the second-level cache. The changed store's detail
+	 * then shows both new customers.
+	 */
+
+	@Test
+	void upsertEvictsTheUpdatedCustomer() {
+		Long petStoreId = createPetStore("Upsert");
+		PetStoreCustomer original = customer("renamed@example.com");
+		original.setCustomerFirstName("Before");
+		Long customerId = petStoreService.saveCustomer(petStoreId, original).getCustomerId();
+
+		loadDetail(petStoreId);
+		assertThat(cache().containsEntity(Customer.class, customerId)).isTrue();
+
+		PetStoreCustomer renamed = customer("renamed@example.com");
+		renamed.setCustomerFirstName("After");
+		petStoreService.upsertCustomerByEmail(petStoreId, renamed);
+
+		assertThat(cache().containsEntity(Customer.class, customerId)).isFalse();
+		assertThat(petStoreService.retrievePetStoreById(petStoreId).getCustomers())
+				.extracting(PetStoreCustomer::getCustomerFirstName).containsExactly("After");
+	}
+
+	/*
+	 * upsertEvictsTheUpdatedCustomer: An upsert that updates an existing customer evicts
+	 * that customer's cached entity, so the store's detail shows the new name.
+	 */
+
+	@Test
+	void movingAnEmployeeEvictsBothStoresEmployees() {
+		Long from = createPetStore("From");
+		Long to = createPetStore("To");
+		PetStoreEmployee employee = new PetStoreEmployee();
+		employee.setEmployeeFirstName("Mover");
+		employee = petStoreService.saveEmployee(from, employee);
+
+		assertThat(cachedEmployeeIds(from)).containsExactly(employee.getEmployeeId());
+		assertThat(cachedEmployeeIds(to)).isEmpty();
+
+		petStoreService.saveEmployee(to, employee);
+
+		assertThat(cachedEmployeeIds(from)).isEmpty();
+		assertThat(cachedEmployeeIds(to)).containsExactly(employee.getEmployeeId());
+	}
+
+	/*
+	 * movingAnEmployeeEvictsBothStoresEmployees: Hibernate does not evict the cached employees
+	 * collections by itself, so after an employee moves, both stores' collections must be
+	 * read again with the employee in its new store only. The collections are initialized
+	 * lazily, which is the path that reads them from the second-level cache.
+	 */
+
+	@Test
+	void deletingAStoreEvictsOnlyThatStoresEntries() {
+		Long deleted = createPetStore("Deleted");
+		Long kept = createPetStore("Kept");
+		PetStoreEmployee employee = new PetStoreEmployee();
+		employee.setEmployeeFirstName("Employee");
+		Long deletedEmployeeId = petStoreService.saveEmployee(deleted, employee).getEmployeeId();
+		employee.setEmployeeId(null);
+		Long keptEmployeeId = petStoreService.saveEmployee(kept, employee).getEmployeeId();
+		petStoreService.saveCustomer(deleted, customer("deleted-store@example.com"));
+		petStoreService.saveCustomer(kept, customer("kept-store@example.com"));
+
+		for (Long petStoreId : List.of(deleted, kept)) {
+			loadDetail(petStoreId);
+			cachedEmployeeIds(petStoreId);
+		}
+
+		Cache cache = cache();
+		assertThat(cache.containsEntity(Employee.class, deletedEmployeeId)).isTrue();
+		assertThat(cache.containsCollection(EMPLOYEES_ROLE, deleted)).isTrue();
+
+		petStoreService.deletePetStoreById(deleted);
+
+		assertThat(cache.containsEntity(PetStore.class, deleted)).isFalse();
+		assertThat(cache.containsEntity(Employee.class, deletedEmployeeId)).isFalse();
+		assertThat(cache.containsCollection(EMPLOYEES_ROLE, deleted)).isFalse();
+		assertThat(cache.containsCollection(CUSTOMERS_ROLE, deleted)).isFalse();
+		assertThat(cache.containsEntity(PetStore.class, kept)).isTrue();
+		assertThat(cache.containsEntity(Employee.class, keptEmployeeId)).isTrue();
+		assertThat(cache.containsCollection(EMPLOYEES_ROLE, kept)).isTrue();
+		assertThat(cache.containsCollection(CUSTOMERS_ROLE, kept)).isTrue();
+	}
+
+	/*
+	 * deletingAStoreEvictsOnlyThatStoresEntries: A store delete removes the store, its
+	 * employees and both of its collections from the second-level cache, while another
+	 * store's entity, employee and collections stay cached.
+	 */
+
+	private List<Long> cachedEmployeeIds(Long petStoreId) {
+		return transactionTemplate.execute(status -> entityManager.find(PetStore.class, petStoreId).getEmployees()
+				.stream().map(Employee::getEmployeeId).toList());
+	}
+
+	private void loadDetail(Long petStoreId) {
+		petStoreDetailCache.evict(petStoreId);
+		petStoreService.retrievePetStoreById(petStoreId);
+	}
+
+	private Cache cache() {
+		return entityManagerFactory.getCache().unwrap(Cache.class);
+	}
+
+	private Long createPetStore(String name) {
+		PetStoreData petStoreData = new PetStoreData();
+		petStoreData.setPetStoreName(name);
+		return petStoreService.savePetStore(petStoreData).getPetStoreId();
+	}
+
+	private PetStoreCustomer customer(String email) {
+		PetStoreCustomer customer = new PetStoreCustomer();
+		customer.setCustomerEmail(email);
+		return customer;
+	}
+}
@@ -0,0 +1,79 @@
+package pet.store.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.test.context.ActiveProfiles;
+
+import pet.store.controller.model.BulkImportResult;
+import pet.store.controller.model.CustomerSignUpStatus;
+import pet.store.controller.model.PetStoreCustomer;
+import pet.store.controller.model.PetStoreData;
+
+@SpringBootTest(properties = { "pet-store.customer-sign-up-queue.enabled=true",
+		"pet-store.customer-sign-up-queue.max-delay=1s" })
+@ActiveProfiles("test")
+class CustomerSignUpQueueTest {
+
+	@SpyBean
+	private PetStoreService petStoreService;
+
+	@Autowired
+	private CustomerSignUpQueue customerSignUpQueue;
+
+	@Test
+	void aFailingStoreDoesNotFailTheOthersInTheBatch() throws InterruptedException {
+		Long written = createPetStore("Written");
+		Long failing = createPetStore("Failing");
+
+		doThrow(new IllegalStateException("Simulated failure")).when(petStoreService).saveCustomers(eq(failing),
+				anyList());
+
+		CustomerSignUpStatus first = customerSignUpQueue.enqueue(written, customer("written-1@example.com"));
+		CustomerSignUpStatus broken = customerSignUpQueue.enqueue(failing, customer("failing@example.com"));
+		CustomerSignUpStatus last = customerSignUpQueue.enqueue(written, customer("written-2@example.com"));
+
+		assertThat(awaitStatus(written, first).getStatus()).isEqualTo(BulkImportResult.CREATED);
+		assertThat(awaitStatus(failing, broken).getStatus()).isEqualTo(BulkImportResult.FAILED);
+		assertThat(awaitStatus(written, last).getStatus()).isEqualTo(BulkImportResult.CREATED);
+		assertThat(petStoreService.retrievePetStoreStats(written).getCustomerCount()).isEqualTo(2);
+	}
+
+	/*
+	 * aFailingStoreDoesNotFailTheOthersInTheBatch: Three sign-ups for two stores land in one
+	 * batch, and writing the second store's group throws something other than a
+	 * DataAccessException. Only that group is FAILED; the first store's sign-ups, which were
+	 * written, stay CREATED.
+	 */
+
+	private CustomerSignUpStatus awaitStatus(Long petStoreId, CustomerSignUpStatus queued)
+			throws InterruptedException {
+		for (int attempt = 0; attempt < 100; attempt++) {
+			CustomerSignUpStatus status = customerSignUpQueue.retrieveStatus(petStoreId, queued.getTrackingId());
+
+			if (!CustomerSignUpStatus.QUEUED.equals(status.getStatus())) {
+				return status;
+			}
+			Thread.sleep(100);
+		}
+		throw new AssertionError("Sign-up " + queued.getTrackingId() + " is still queued");
+	}
+
+	private Long createPetStore(String name) {
+		PetStoreData petStoreData = new PetStoreData();
+		petStoreData.setPetStoreName(name);
+		return petStoreService.savePetStore(petStoreData).getPetStoreId();
+	}
+
+	private PetStoreCustomer customer(String email) {
+		PetStoreCustomer customer = new PetStoreCustomer();
+		customer.setCustomerEmail(email);
+		return customer;
+	}
+}
@@ -0,0 +1,64 @@
+package pet.store.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT, properties = "pet-store.change-feed.heartbeat-interval=200ms")
+@ActiveProfiles("test")
+class PetStoreChangeFeedTest {
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@LocalServerPort
+	private int port;
+
+	@Test
+	void heartbeatRemovesSubscribersThatWentAway() throws Exception {
+		HttpClient httpClient = HttpClient.newHttpClient();
+		HttpResponse<InputStream> response = httpClient.send(
+				HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/pet_store/changes")).build(),
+				HttpResponse.BodyHandlers.ofInputStream());
+
+		assertThat(awaitSubscribers(1)).isEqualTo(1);
+
+		response.body().close();
+		httpClient.shutdownNow();
+
+		assertThat(awaitSubscribers(0)).isZero();
+	}
+
+	/*
+	 * heartbeatRemovesSubscribersThatWentAway: A client subscribes and then drops its
+	 * connection without any change being published. The heartbeat write to the dead
+	 * connection must fail and remove the subscriber, well before the feed's timeout.
+	 */
+
+	private double awaitSubscribers(int expected) throws InterruptedException {
+		double subscribers = -1;
+
+		for (int attempt = 0; attempt < 100; attempt++) {
+			subscribers = meterRegistry.get("pet_store.change_feed.subscribers").gauge().value();
+
+			if (subscribers == expected) {
+				break;
+			}
+			Thread.sleep(100);
+		}
+		return subscribers;
+	}
+}
@@ -0,0 +1,84 @@
+package pet.store.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import pet.store.controller.model.BulkImportResult;
+import pet.store.controller.model.PetStoreCustomer;
+import pet.store.controller.model.PetStoreData;
+import pet.store.controller.model.PetStoreEmployee;
+import pet.store.controller.model.PetStoreStats;
+
+@SpringBootTest(properties = "spring.datasource.hikari.maximum-pool-size=" + 2 * PetStoreCounterConcurrencyTest.WRITERS)
+@ActiveProfiles("test")
+class PetStoreCounterConcurrencyTest {
+
+	static final int WRITERS = 30;
+
+	@Autowired
+	private PetStoreService petStoreService;
+
+	@Test
+	void concurrentAddsToOneStoreAllSucceed() throws Exception {
+		PetStoreData petStoreData = new PetStoreData();
+		petStoreData.setPetStoreName("Busy store");
+		Long petStoreId = petStoreService.savePetStore(petStoreData).getPetStoreId();
+		long versionBefore = petStoreService.retrievePetStoreVersion(petStoreId);
+
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<?>> writes = new ArrayList<>();
+
+		try (ExecutorService writers = Executors.newFixedThreadPool(WRITERS)) {
+			for (int writer = 0; writer < WRITERS; writer++) {
+				int number = writer;
+
+				writes.add(writers.submit(() -> {
+					start.await();
+
+					PetStoreEmployee employee = new PetStoreEmployee();
+					employee.setEmployeeFirstName("Employee " + number);
+					petStoreService.saveEmployee(petStoreId, employee);
+
+					PetStoreCustomer customer = new PetStoreCustomer();
+					customer.setCustomerEmail("busy-" + number + "@example.com");
+					List<BulkImportResult> results = petStoreService.saveCustomers(petStoreId, List.of(customer));
+
+					assertThat(results).extracting(BulkImportResult::getStatus).containsOnly(BulkImportResult.CREATED);
+					return null;
+				}));
+			}
+
+			start.countDown();
+
+			for (Future<?> write : writes) {
+				write.get();
+			}
+		}
+
+		PetStoreStats stats = petStoreService.retrievePetStoreStats(petStoreId);
+
+		assertThat(stats.getEmployeeCount()).isEqualTo(WRITERS);
+		assertThat(stats.getCustomerCount()).isEqualTo(WRITERS);
+		assertThat(petStoreService.retrievePetStoreVersion(petStoreId)).isEqualTo(versionBefore + 2 * WRITERS);
+	}
+
+	/*
+	 * concurrentAddsToOneStoreAllSucceed: 30 threads each add an employee and import a
+	 * customer into the same store at the same moment, none of them sending an expected
+	 * version. Every write must succeed (none may fail a version check), the counters must
+	 * count every one of them, and the version must have moved once per write. Each writer may
+	 * need a second connection for an ID from the sequence tables, so the pool is sized for
+	 * that; in the application the write bulkhead keeps concurrent writes well below the pool.
+	 */
+}
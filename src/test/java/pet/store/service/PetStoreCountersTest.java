@@ -0,0 +1,134 @@
+package pet.store.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import pet.store.controller.model.PetStoreCustomer;
+import pet.store.controller.model.PetStoreData;
+import pet.store.controller.model.PetStoreEmployee;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class PetStoreCountersTest {
+
+	@Autowired
+	private PetStoreService petStoreService;
+
+	@Test
+	void movingAnEmployeeMovesTheCount() {
+		Long from = createPetStore("From");
+		Long to = createPetStore("To");
+		PetStoreEmployee employee = new PetStoreEmployee();
+		employee.setEmployeeFirstName("Mover");
+		employee = petStoreService.saveEmployee(from, employee);
+
+		long fromVersion = petStoreService.retrievePetStoreVersion(from);
+		long toVersion = petStoreService.retrievePetStoreVersion(to);
+
+		petStoreService.saveEmployee(to, employee);
+
+		assertThat(petStoreService.retrievePetStoreStats(from).getEmployeeCount()).isZero();
+		assertThat(petStoreService.retrievePetStoreStats(to).getEmployeeCount()).isEqualTo(1);
+		assertThat(petStoreService.retrievePetStoreVersion(from)).isEqualTo(fromVersion + 1);
+		assertThat(petStoreService.retrievePetStoreVersion(to)).isEqualTo(toVersion + 1);
+	}
+
+	/*
+	 * movingAnEmployeeMovesTheCount: Saving an existing employee under another store takes
+	 * one off the old store's employee counter and adds one to the new store's, and both
+	 * stores get a new version.
+	 */
+
+	@Test
+	void updatingAnEmployeeInPlaceKeepsTheCount() {
+		Long petStoreId = createPetStore("Same");
+		PetStoreEmployee employee = new PetStoreEmployee();
+		employee.setEmployeeFirstName("Before");
+		employee = petStoreService.saveEmployee(petStoreId, employee);
+
+		long version = petStoreService.retrievePetStoreVersion(petStoreId);
+
+		employee.setEmployeeFirstName("After");
+		petStoreService.saveEmployee(petStoreId, employee);
+
+		assertThat(petStoreService.retrievePetStoreStats(petStoreId).getEmployeeCount()).isEqualTo(1);
+		assertThat(petStoreService.retrievePetStoreVersion(petStoreId)).isEqualTo(version + 1);
+	}
+
+	/*
+	 * updatingAnEmployeeInPlaceKeepsTheCount: Updating an employee within its own store only
+	 * bumps that store's version.
+	 */
+
+	@Test
+	void resendingAnUpsertedCustomerChangesNothing() {
+		Long first = createPetStore("First");
+		Long second = createPetStore("Second");
+		petStoreService.upsertCustomerByEmail(first, customer("resent@example.com", "Last"));
+		petStoreService.upsertCustomerByEmail(second, customer("resent@example.com", "Last"));
+
+		long firstVersion = petStoreService.retrievePetStoreVersion(first);
+		long secondVersion = petStoreService.retrievePetStoreVersion(second);
+
+		petStoreService.upsertCustomerByEmail(first, customer("resent@example.com", "Last"));
+
+		assertThat(petStoreService.retrievePetStoreStats(first).getCustomerCount()).isEqualTo(1);
+		assertThat(petStoreService.retrievePetStoreVersion(first)).isEqualTo(firstVersion);
+		assertThat(petStoreService.retrievePetStoreVersion(second)).isEqualTo(secondVersion);
+
+		petStoreService.upsertCustomerByEmail(first, customer("resent@example.com", "Renamed"));
+
+		assertThat(petStoreService.retrievePetStoreStats(first).getCustomerCount()).isEqualTo(1);
+		assertThat(petStoreService.retrievePetStoreVersion(first)).isEqualTo(firstVersion + 1);
+		assertThat(petStoreService.retrievePetStoreVersion(second)).isEqualTo(secondVersion + 1);
+	}
+
+	/*
+	 * resendingAnUpsertedCustomerChangesNothing: Upserting a customer exactly as it is stored
+	 * leaves both of its stores' versions (and so their ETags) and counters alone. Changing
+	 * its name bumps both versions but adds no one to the counter.
+	 */
+
+	@Test
+	void upsertedAndSavedCustomersGetDistinctIds() {
+		Long petStoreId = createPetStore("Ids");
+		Set<Long> customerIds = new HashSet<>();
+
+		for (int round = 0; round < 3; round++) {
+			customerIds.add(petStoreService.upsertCustomerByEmail(petStoreId,
+					customer("upserted" + round + "@example.com", "Last")).getCustomerId());
+			customerIds.add(petStoreService.saveCustomer(petStoreId,
+					customer("saved" + round + "@example.com", "Last")).getCustomerId());
+		}
+
+		assertThat(customerIds).hasSize(6);
+		assertThat(petStoreService.retrievePetStoreStats(petStoreId).getCustomerCount()).isEqualTo(6);
+	}
+
+	/*
+	 * upsertedAndSavedCustomersGetDistinctIds: The upsert takes its IDs from customer_seq
+	 * itself, while saveCustomer takes them from Hibernate's pooled generator on the same
+	 * table. Alternating the two must never hand out the same ID twice.
+	 */
+
+	private PetStoreCustomer customer(String email, String lastName) {
+		PetStoreCustomer customer = new PetStoreCustomer();
+		customer.setCustomerFirstName("First");
+		customer.setCustomerLastName(lastName);
+		customer.setCustomerEmail(email);
+		return customer;
+	}
+
+	private Long createPetStore(String name) {
+		PetStoreData petStoreData = new PetStoreData();
+		petStoreData.setPetStoreName(name);
+		return petStoreService.savePetStore(petStoreData).getPetStoreId();
+	}
+}
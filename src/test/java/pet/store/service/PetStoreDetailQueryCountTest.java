@@ -0,0 +1,128 @@
+package pet.store.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.test.context.ActiveProfiles;
+
+import jakarta.persistence.EntityManagerFactory;
+import pet.store.controller.model.PetStoreBatchEntry;
+import pet.store.controller.model.PetStoreCustomer;
+import pet.store.controller.model.PetStoreData;
+import pet.store.controller.model.PetStoreEmployee;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class PetStoreDetailQueryCountTest {
+
+	@Autowired
+	private PetStoreService petStoreService;
+
+	@Autowired
+	private PetStoreDetailCache petStoreDetailCache;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	private CacheManager cacheManager;
+
+	@ParameterizedTest
+	@ValueSource(ints = { 0, 1, 25, 200 })
+	void retrievePetStoreByIdIssuesTwoStatements(int associations) {
+		Long petStoreId = createPetStore(associations);
+
+		petStoreDetailCache.evict(petStoreId);
+		entityManagerFactory.getCache().evictAll();
+
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+
+		PetStoreData petStore = petStoreService.retrievePetStoreById(petStoreId);
+
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+		assertThat(petStore.getEmployees()).hasSize(associations);
+		assertThat(petStore.getCustomers()).hasSize(associations);
+	}
+
+	/*
+	 * retrievePetStoreByIdIssuesTwoStatements: Loading a store's detail takes one query for
+	 * the store with its employees and one for its customers, however many of each the store
+	 * has. Both caches are cleared first, so the statements are really sent to the database.
+	 */
+
+	@Test
+	void batchLookupRereadsStoresCachedAtAnOldVersion() {
+		Long current = createPetStore("Current");
+		Long stale = createPetStore("Stale");
+		petStoreService.retrievePetStoreById(current);
+		PetStoreData oldDetail = petStoreService.retrievePetStoreById(stale);
+
+		PetStoreData renamed = new PetStoreData();
+		renamed.setPetStoreId(stale);
+		renamed.setPetStoreName("Renamed");
+		petStoreService.savePetStore(renamed);
+		cacheManager.getCache(PetStoreDetailCache.CACHE_NAME).put(stale, oldDetail);
+
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+
+		List<PetStoreBatchEntry> entries = petStoreService.retrievePetStoresByIds(List.of(current, stale))
+				.getPetStores();
+
+		assertThat(entries.get(0).getPetStore().getPetStoreName()).isEqualTo("Current");
+		assertThat(entries.get(1).getPetStore().getPetStoreName()).isEqualTo("Renamed");
+		assertThat(petStoreDetailCache.get(stale)).isNull();
+
+		statistics.clear();
+		petStoreService.retrievePetStoresByIds(List.of(current));
+
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+	}
+
+	/*
+	 * batchLookupRereadsStoresCachedAtAnOldVersion: Puts a store's old detail back into the
+	 * cache after an update, as a late reader would. The batch lookup must return the updated
+	 * store and drop the old entry, while a store cached at its current version is still
+	 * served from the cache, at the cost of the one version query.
+	 */
+
+	private Long createPetStore(String name) {
+		PetStoreData petStoreData = new PetStoreData();
+		petStoreData.setPetStoreName(name);
+		return petStoreService.savePetStore(petStoreData).getPetStoreId();
+	}
+
+	private Long createPetStore(int associations) {
+		PetStoreData petStoreData = new PetStoreData();
+		petStoreData.setPetStoreName("Query count " + associations);
+		Long petStoreId = petStoreService.savePetStore(petStoreData).getPetStoreId();
+
+		List<PetStoreEmployee> employees = new ArrayList<>();
+		List<PetStoreCustomer> customers = new ArrayList<>();
+
+		for (int i = 0; i < associations; i++) {
+			PetStoreEmployee employee = new PetStoreEmployee();
+			employee.setEmployeeFirstName("Employee " + i);
+			employees.add(employee);
+
+			PetStoreCustomer customer = new PetStoreCustomer();
+			customer.setCustomerEmail("query-count-" + associations + "-" + i + "@example.com");
+			customers.add(customer);
+		}
+
+		petStoreService.saveEmployees(petStoreId, employees);
+		petStoreService.saveCustomers(petStoreId, customers);
+		return petStoreId;
+	}
+}